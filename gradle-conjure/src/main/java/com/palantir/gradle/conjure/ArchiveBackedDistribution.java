@@ -0,0 +1,246 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.palantir.gradle.conjure.ReverseEngineerJavaStartScript.StartScriptInfo;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+/**
+ * A java generator distribution of which only the start script was extracted, see
+ * {@link ExtractExecutableTask#getExtractionFree()}. A marker file next to {@code bin/} records the archive, from which
+ * the classpath jars are read into memory rather than being written to every project's build directory.
+ */
+final class ArchiveBackedDistribution {
+
+    static final String MARKER_FILE_NAME = ".gradle-conjure-archive";
+
+    private static final String URL_PROTOCOL = "gradle-conjure-archive";
+
+    /**
+     * Jars read out of archives, keyed by the archive's hash and the jar's path in it, so that every runner of the same
+     * generator shares one copy. Held for as long as a class loader uses them.
+     */
+    private static final Cache<String, InMemoryJar> jars =
+            CacheBuilder.newBuilder().weakValues().build();
+
+    /** The archive backing the distribution containing {@code executable}, if its jars were not extracted. */
+    static Optional<File> archive(File executable) {
+        Path marker = appHome(executable).resolve(MARKER_FILE_NAME);
+        if (!Files.isRegularFile(marker)) {
+            return Optional.empty();
+        }
+        try {
+            File archive = new File(new String(Files.readAllBytes(marker), StandardCharsets.UTF_8));
+            return archive.isFile() ? Optional.of(archive) : Optional.empty();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read " + marker, e);
+        }
+    }
+
+    static void writeMarker(File appHome, File archive) throws IOException {
+        Files.write(
+                appHome.toPath().resolve(MARKER_FILE_NAME),
+                archive.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Loads the classpath of {@code info} straight out of {@code archive}. */
+    static ChildFirstUrlClassLoader classLoader(
+            File archive, File executable, StartScriptInfo info, ClassLoader parent) throws IOException {
+        Path appHome = appHome(executable);
+        List<String> paths = info.classpath().stream()
+                .map(jar -> appHome.relativize(jar.toPath().toAbsolutePath()).toString())
+                .map(path -> path.replace(File.separatorChar, '/'))
+                .collect(Collectors.toList());
+        String archiveKey = FileHasher.hash(archive) + "!/";
+
+        // Held in a local so that the weakly cached jars can't be collected before the class loader holds them
+        Map<String, InMemoryJar> found = new HashMap<>();
+        for (String path : paths) {
+            InMemoryJar jar = jars.getIfPresent(archiveKey + path);
+            if (jar != null) {
+                found.put(path, jar);
+            }
+        }
+        Set<String> missing =
+                paths.stream().filter(path -> !found.containsKey(path)).collect(Collectors.toSet());
+        if (!missing.isEmpty()) {
+            for (Map.Entry<String, byte[]> read : TarExtractor.readFiles(archive, missing::contains).entrySet()) {
+                InMemoryJar jar = InMemoryJar.read(read.getKey(), read.getValue());
+                jars.put(archiveKey + read.getKey(), jar);
+                found.put(read.getKey(), jar);
+            }
+        }
+
+        // Earlier jars on the classpath win, just as they would for a URLClassLoader
+        ImmutableList.Builder<InMemoryJar> classpath = ImmutableList.builder();
+        for (String path : paths) {
+            InMemoryJar jar = found.get(path);
+            if (jar == null) {
+                throw new IOException("Classpath entry " + path + " is missing from " + archive);
+            }
+            classpath.add(jar);
+        }
+        return new InMemoryJarClassLoader(classpath.build(), parent);
+    }
+
+    /**
+     * The executable of a fully extracted copy of the distribution, for callers which need the jars on disk, e.g. to
+     * run the generator in a separate process. The copy is extracted once per archive into {@code extractionCache},
+     * rather than into the directory of the task that extracted the start script. Returns {@code executable} itself for
+     * distributions that were fully extracted to begin with.
+     */
+    static File fullyExtracted(File executable, File extractionCache) {
+        Optional<File> archive = archive(executable);
+        if (!archive.isPresent()) {
+            return executable;
+        }
+        File extracted = ExtractionCache.getOrExtract(
+                extractionCache, archive.get(), dir -> ExtractionCache.extract(archive.get(), dir));
+        return new File(
+                extracted,
+                appHome(executable).relativize(executable.toPath().toAbsolutePath()).toString());
+    }
+
+    private static Path appHome(File executable) {
+        return executable.toPath().toAbsolutePath().getParent().getParent();
+    }
+
+    /**
+     * A URL for {@code jar} itself, or for its entry {@code name}, which reads from memory. The jar's path in the
+     * archive stands in for where it would have been extracted to.
+     */
+    private static URL url(InMemoryJar jar, Optional<String> name) {
+        String path = "/" + jar.name() + name.map(entry -> "!/" + entry).orElse("");
+        try {
+            return new URL(URL_PROTOCOL, null, -1, path, new URLStreamHandler() {
+                @Override
+                protected URLConnection openConnection(URL url) {
+                    return new URLConnection(url) {
+                        @Override
+                        public void connect() {}
+
+                        @Override
+                        public InputStream getInputStream() throws IOException {
+                            return new ByteArrayInputStream(name.isPresent() ? jar.read(name.get()) : jar.bytes());
+                        }
+                    };
+                }
+            });
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Child first class loader over jars held in memory. Classes get a code source pointing at their jar, and packages
+     * are defined from the jar's manifest, so e.g. {@link Package#getImplementationVersion()} works as it would for
+     * the extracted jars.
+     */
+    private static final class InMemoryJarClassLoader extends ChildFirstUrlClassLoader {
+
+        private final List<InMemoryJar> jars;
+        private final Map<InMemoryJar, CodeSource> codeSources;
+
+        InMemoryJarClassLoader(List<InMemoryJar> jars, ClassLoader parent) {
+            super(new URL[0], parent);
+            this.jars = jars;
+            this.codeSources = new HashMap<>();
+            for (InMemoryJar jar : jars) {
+                codeSources.putIfAbsent(jar, new CodeSource(url(jar, Optional.empty()), (CodeSigner[]) null));
+            }
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            String path = name.replace('.', '/') + ".class";
+            Optional<InMemoryJar> jar = jars.stream().filter(j -> j.contains(path)).findFirst();
+            if (!jar.isPresent()) {
+                throw new ClassNotFoundException(name);
+            }
+            byte[] bytes;
+            try {
+                bytes = jar.get().read(path);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+            int lastDot = name.lastIndexOf('.');
+            if (lastDot > 0) {
+                definePackageIfAbsent(name.substring(0, lastDot), jar.get());
+            }
+            return defineClass(name, bytes, 0, bytes.length, codeSources.get(jar.get()));
+        }
+
+        private void definePackageIfAbsent(String packageName, InMemoryJar jar) {
+            if (getDefinedPackage(packageName) != null) {
+                return;
+            }
+            try {
+                Optional<Manifest> manifest = jar.manifest();
+                if (manifest.isPresent()) {
+                    definePackage(packageName, manifest.get(), codeSources.get(jar).getLocation());
+                } else {
+                    definePackage(packageName, null, null, null, null, null, null, null);
+                }
+            } catch (IllegalArgumentException e) {
+                // Defined concurrently by another thread
+            }
+        }
+
+        @Override
+        public URL findResource(String name) {
+            return jars.stream()
+                    .filter(jar -> jar.contains(name))
+                    .findFirst()
+                    .map(jar -> url(jar, Optional.of(name)))
+                    .orElse(null);
+        }
+
+        @Override
+        public Enumeration<URL> findResources(String name) {
+            return Collections.enumeration(jars.stream()
+                    .filter(jar -> jar.contains(name))
+                    .map(jar -> url(jar, Optional.of(name)))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    private ArchiveBackedDistribution() {}
+}
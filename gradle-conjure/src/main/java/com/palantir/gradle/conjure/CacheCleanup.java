@@ -0,0 +1,111 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes entries of the caches in Gradle user home which no build has used for a while, much like Gradle cleans up
+ * its own caches. Entries are files whose modification time records when they were last used, see
+ * {@link #markUsed(Path)}. Each cache directory is cleaned up at most once a day.
+ */
+final class CacheCleanup {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheCleanup.class);
+
+    static final Duration MAX_UNUSED = Duration.ofDays(30);
+
+    /** Last use is only recorded to the nearest day, rather than writing to the cache on every use. */
+    private static final Duration RESOLUTION = Duration.ofDays(1);
+
+    private static final String CLEANUP_MARKER_FILE_NAME = ".last-cleanup";
+
+    interface EntryDeleter {
+        /** Deletes {@code entry} and anything belonging to it, if it still hasn't been used since {@code cutoff}. */
+        void delete(Path entry, Instant cutoff) throws IOException;
+    }
+
+    /** Records that {@code entry} is in use, returning false if it has been deleted in the meantime. */
+    static boolean markUsed(Path entry) {
+        try {
+            Instant now = Instant.now();
+            if (Files.getLastModifiedTime(entry).toInstant().isBefore(now.minus(RESOLUTION))) {
+                Files.setLastModifiedTime(entry, FileTime.from(now));
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            log.debug("Failed to record use of {}", entry, e);
+            return Files.exists(entry);
+        }
+    }
+
+    static boolean isUnusedSince(Path entry, Instant cutoff) throws IOException {
+        try {
+            return Files.getLastModifiedTime(entry).toInstant().isBefore(cutoff);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Passes every entry of {@code cacheDirectory}, i.e. file ending in {@code entrySuffix}, which hasn't been used for
+     * {@link #MAX_UNUSED} to {@code deleter}, unless the directory was already cleaned up in the last day. Failures are
+     * only logged, as they shouldn't fail the build using the cache.
+     */
+    static void maybeCleanUp(Path cacheDirectory, String entrySuffix, EntryDeleter deleter) {
+        try {
+            Path marker = cacheDirectory.resolve(CLEANUP_MARKER_FILE_NAME);
+            Instant now = Instant.now();
+            if (Files.exists(marker) && !isUnusedSince(marker, now.minus(RESOLUTION))) {
+                return;
+            }
+            // Claimed up front so concurrent builds needn't all clean up, though it would be harmless if they did
+            Files.createDirectories(cacheDirectory);
+            Files.write(marker, new byte[0]);
+
+            Instant cutoff = now.minus(MAX_UNUSED);
+            List<Path> unused = new ArrayList<>();
+            try (Stream<Path> entries = Files.list(cacheDirectory)) {
+                entries.filter(entry -> entry.getFileName().toString().endsWith(entrySuffix))
+                        .forEach(unused::add);
+            }
+            for (Path entry : unused) {
+                if (isUnusedSince(entry, cutoff)) {
+                    log.info("Deleting {}, which hasn't been used for {} days", entry, MAX_UNUSED.toDays());
+                    deleter.delete(entry, cutoff);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to clean up {}", cacheDirectory, e);
+        }
+    }
+
+    private CacheCleanup() {}
+}
@@ -0,0 +1,87 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.base.Throwables;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs generator invocations on a dedicated thread, so that they can be abandoned when they exceed their timeout or
+ * when the build is cancelled, which Gradle signals by interrupting the worker thread waiting on them.
+ */
+final class CancellableInvocation {
+
+    private static final Logger log = LoggerFactory.getLogger(CancellableInvocation.class);
+
+    /** How long a cancelled invocation is given to notice before it is left to finish in the background. */
+    private static final long CANCELLATION_GRACE_SECONDS = 5;
+
+    /**
+     * Runs {@code invocation}, calling {@code onCancel} and interrupting it if it runs for longer than
+     * {@code timeout} or the calling thread is interrupted.
+     */
+    static <T> T run(
+            String failedTo, String name, Optional<Duration> timeout, Callable<T> invocation, Runnable onCancel) {
+        FutureTask<T> task = new FutureTask<>(invocation);
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            return timeout.isPresent() ? task.get(timeout.get().toMillis(), TimeUnit.MILLISECONDS) : task.get();
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            cancel(task, thread, onCancel);
+            throw new RuntimeException(
+                    String.format("Failed to %s. The command '%s' timed out after %s", failedTo, name, timeout.get()));
+        } catch (InterruptedException e) {
+            cancel(task, thread, onCancel);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(String.format("Failed to %s. The command '%s' was cancelled", failedTo, name));
+        }
+    }
+
+    /** Kills {@code process} and everything it started, e.g. the JVM behind a start script. */
+    static void destroyProcessTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private static void cancel(FutureTask<?> task, Thread thread, Runnable onCancel) {
+        onCancel.run();
+        task.cancel(true);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(CANCELLATION_GRACE_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            log.warn("{} did not stop after being cancelled, leaving it running in the background", thread.getName());
+        }
+    }
+
+    private CancellableInvocation() {}
+}
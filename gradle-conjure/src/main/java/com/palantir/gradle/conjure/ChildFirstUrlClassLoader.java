@@ -27,12 +27,17 @@ import java.util.Vector;
  * This prevents interference between the callers classpath and generators.
  */
 @SuppressWarnings("JdkObsolete") // Enumeration
-final class ChildFirstUrlClassLoader extends URLClassLoader {
+class ChildFirstUrlClassLoader extends URLClassLoader {
 
     ChildFirstUrlClassLoader(URL[] urls, ClassLoader parent) {
         super(urls, parent);
     }
 
+    /** Defines a class from bytes that have already been rewritten, e.g. by ByteBuddy. */
+    Class<?> defineRewrittenClass(String name, byte[] bytes) {
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+
     @Override
     protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
         // Quick check for jvm types
@@ -20,10 +20,7 @@ import com.google.common.collect.ImmutableMap;
 import java.io.File;
 import java.util.Map;
 import java.util.function.Supplier;
-import org.gradle.api.Action;
 import org.gradle.api.Project;
-import org.gradle.api.Task;
-import org.gradle.api.file.ConfigurableFileTree;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.CacheableTask;
@@ -39,15 +36,6 @@ public abstract class CompileConjureTypeScriptTask extends ConjureGeneratorTask
         getPackageName().convention(getProject().provider(project::getName));
         getPackageVersion()
                 .convention(getProject().provider(() -> project.getVersion().toString()));
-        doFirst(new Action<Task>() {
-            @Override
-            public void execute(Task task) {
-                ConfigurableFileTree fileTree =
-                        task.getProject().fileTree(CompileConjureTypeScriptTask.this.getOutputDirectory());
-                fileTree.exclude("node_modules/**/*");
-                fileTree.forEach(File::delete);
-            }
-        });
     }
 
     @InputFile
@@ -60,6 +48,12 @@ public abstract class CompileConjureTypeScriptTask extends ConjureGeneratorTask
     @Input
     public abstract Property<String> getPackageVersion();
 
+    /** Packages installed into the generated package, e.g. to compile it, survive regeneration. */
+    @Override
+    protected final boolean isPreservedOutput(String relativePath) {
+        return relativePath.equals("node_modules") || relativePath.startsWith("node_modules/");
+    }
+
     @Override
     protected final Map<String, Supplier<Object>> requiredOptions(File _file) {
         return ImmutableMap.of(
@@ -16,24 +16,32 @@
 
 package com.palantir.gradle.conjure;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
 import com.palantir.gradle.conjure.api.ServiceDependency;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileTree;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.SetProperty;
 import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputDirectory;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
@@ -43,10 +51,43 @@ import org.gradle.api.tasks.TaskAction;
 
 @CacheableTask
 public abstract class CompileIrTask extends DefaultTask {
+    /** Whether to compile and cache each YAML file separately, see {@link IncrementalIrCompiler}. */
+    static final String INCREMENTAL_PROPERTY = "com.palantir.conjure.incremental_ir";
+
+    /** Whether to sort the definitions in the IR, see {@link IrCanonicalizer}. */
+    static final String CANONICAL_PROPERTY = "com.palantir.conjure.canonical_ir";
+
+    /** Whether to skip the compiler when only comments or whitespace changed, see {@link YamlFingerprint}. */
+    static final String IGNORE_COSMETIC_CHANGES_PROPERTY = "com.palantir.conjure.ignore_cosmetic_yaml_changes";
+
     private static final String EXECUTABLE = OsUtils.appendDotBatIfWindows("bin/conjure");
 
     public CompileIrTask() {
         getConjureExtensions().convention(new HashMap<>());
+        getIncremental()
+                .convention(getProject()
+                        .getProviders()
+                        .gradleProperty(INCREMENTAL_PROPERTY)
+                        .map(Boolean::parseBoolean)
+                        .orElse(false));
+        getCanonical()
+                .convention(getProject()
+                        .getProviders()
+                        .gradleProperty(CANONICAL_PROPERTY)
+                        .map(Boolean::parseBoolean)
+                        .orElse(false));
+        getIgnoreCosmeticChanges()
+                .convention(getProject()
+                        .getProviders()
+                        .gradleProperty(IGNORE_COSMETIC_CHANGES_PROPERTY)
+                        .map(Boolean::parseBoolean)
+                        .orElse(false));
+        getParallelism()
+                .convention(getProject()
+                        .getProviders()
+                        .gradleProperty(ConjureGeneratorTask.GENERATOR_PARALLELISM_PROPERTY)
+                        .map(Integer::parseInt)
+                        .orElse(1));
     }
 
     /**
@@ -73,10 +114,18 @@ public abstract class CompileIrTask extends DefaultTask {
     @OutputFile
     public abstract RegularFileProperty getOutputIrFile();
 
-    @InputDirectory
-    @PathSensitive(PathSensitivity.RELATIVE)
+    /** The directory passed to the compiler. Only the YAML files in it are inputs, see {@link #getConjureFiles()}. */
+    @Internal
     public abstract DirectoryProperty getInputDirectory();
 
+    /** The YAML files in {@link #getInputDirectory()}, so that editing other files there doesn't invalidate the IR. */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    @IgnoreEmptyDirectories
+    public final FileTree getConjureFiles() {
+        return getInputDirectory().getAsFileTree().matching(files -> files.include("**/*.yml"));
+    }
+
     @InputDirectory
     @PathSensitive(PathSensitivity.RELATIVE)
     public abstract DirectoryProperty getExecutableDir();
@@ -97,22 +146,147 @@ public abstract class CompileIrTask extends DefaultTask {
     @PathSensitive(PathSensitivity.RELATIVE)
     public abstract RegularFileProperty getExtensionsFile();
 
+    /**
+     * IR already compiled from the same sources with the same options. When set the compiler isn't run again, the IR
+     * is instead copied from this file with its extensions replaced by this task's.
+     */
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getRawIrFile();
+
+    /**
+     * Whether to compile each YAML file separately, together with the files it imports, and cache the results so that
+     * only changed files and the files importing them are compiled again. The merged IR has the same definitions as
+     * compiling everything at once, but may list them in a different order.
+     */
+    @Input
+    public abstract Property<Boolean> getIncremental();
+
+    /**
+     * Whether to sort types, errors, services and endpoints by name, so that moving definitions between files or
+     * reordering them doesn't change the IR, and so doesn't invalidate everything generated from it.
+     */
+    @Input
+    public abstract Property<Boolean> getCanonical();
+
+    /**
+     * Whether to reuse the previously compiled IR when the YAML only changed in comments or whitespace. The task still
+     * runs, as Gradle fingerprints the files byte by byte, but without invoking the compiler.
+     */
+    @Internal
+    public abstract Property<Boolean> getIgnoreCosmeticChanges();
+
+    /** How many YAML files may be compiled concurrently when {@link #getIncremental() incremental}. */
+    @Internal
+    public abstract Property<Integer> getParallelism();
+
     @TaskAction
     public final void generate() {
+        File outputIr = getOutputIrFile().get().getAsFile();
+        if (getRawIrFile().isPresent()) {
+            writeWithExtensions(getRawIrFile().getAsFile().get(), outputIr);
+            return;
+        }
         File executable = new File(getExecutableDir().getAsFile().get(), EXECUTABLE);
+        if (getIncremental().get()) {
+            generateIncrementally(executable);
+            if (getCanonical().get()) {
+                writeWithExtensions(outputIr, outputIr);
+            }
+            return;
+        }
+        if (!getIgnoreCosmeticChanges().get()) {
+            // Extensions are spliced into the compiled IR rather than passed on the command line, which they can outgrow
+            compile(executable, outputIr);
+            writeWithExtensions(outputIr, outputIr);
+            return;
+        }
+
+        File compiledIr = new File(getTemporaryDir(), "compiled.conjure.json");
+        File compiledKeyFile = new File(getTemporaryDir(), "compiled.key");
+        String key = YamlFingerprint.fingerprint(getInputDirectory().get().getAsFile()) + " "
+                + FileHasher.hash(executable) + " "
+                + String.join(" ", RenderGeneratorOptions.toArgs(getOptions().get(), Collections.emptyMap()));
+        try {
+            if (compiledIr.isFile()
+                    && compiledKeyFile.isFile()
+                    && Files.readString(compiledKeyFile.toPath()).equals(key)) {
+                getLogger().info("Reusing previously compiled IR, as only comments or whitespace changed");
+            } else {
+                Files.deleteIfExists(compiledKeyFile.toPath());
+                compile(executable, compiledIr);
+                Files.writeString(compiledKeyFile.toPath(), key);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to reuse compiled IR", e);
+        }
+        writeWithExtensions(compiledIr, outputIr);
+    }
+
+    private void compile(File executable, File outputIr) {
         List<String> args = ImmutableList.<String>builder()
                 .add("compile")
                 .add(getInputDirectory().get().getAsFile().getAbsolutePath())
-                .add(getOutputIrFile().get().getAsFile().getAbsolutePath())
-                .add("--extensions")
-                .add(OsUtils.escapeAndWrapArgIfWindows(getSerializedExtensions()))
+                .add(outputIr.getAbsolutePath())
                 .addAll(RenderGeneratorOptions.toArgs(getOptions().get(), Collections.emptyMap()))
                 .build();
 
-        GradleExecUtils.exec(getProject(), "generate conjure IR", executable, Collections.emptyList(), args);
+        GradleExecUtils.exec(
+                getProject(),
+                "generate conjure IR",
+                executable,
+                Collections.emptyList(),
+                args,
+                ImmutableList.of(getInputDirectory().get().getAsFile()));
+    }
+
+    private void generateIncrementally(File executable) {
+        List<String> options = RenderGeneratorOptions.toArgs(getOptions().get(), Collections.emptyMap());
+        IncrementalIrCompiler irCompiler = new IncrementalIrCompiler(
+                getInputDirectory().get().getAsFile(),
+                new File(getTemporaryDir(), "ir-cache"),
+                FileHasher.hash(executable) + String.join(" ", options));
+        // Files may be compiled on other threads, which must not touch the project
+        GradleExecUtils.PreparedExec compiler = GradleExecUtils.prepare(getProject(), executable);
+        irCompiler.compile(
+                getOutputIrFile().get().getAsFile(),
+                getConjureExtensionsJson(),
+                getParallelism().get(),
+                (yaml, ir) -> compiler.exec(
+                        "generate conjure IR for " + yaml.getName(),
+                        Collections.emptyList(),
+                        ImmutableList.<String>builder()
+                                .add("compile")
+                                .add(yaml.getAbsolutePath())
+                                .add(ir.getAbsolutePath())
+                                .addAll(options)
+                                .build(),
+                        ImmutableList.of(yaml)));
+    }
+
+    /**
+     * Writes {@code ir} to {@code output} with its extensions replaced by this task's, canonicalized if
+     * {@link #getCanonical()}. Otherwise the rest of the IR is copied unchanged, without parsing it.
+     */
+    private void writeWithExtensions(File ir, File output) {
+        try {
+            if (!getCanonical().get()) {
+                IrExtensions.replace(ir, getConjureExtensionsJson(), output);
+                return;
+            }
+            ObjectNode withExtensions = (ObjectNode) GenerateConjureServiceDependenciesTask.jsonMapper.readTree(ir);
+            withExtensions.set("extensions", getConjureExtensionsJson());
+            IrCanonicalizer.canonicalize(withExtensions);
+            GenerateConjureServiceDependenciesTask.jsonMapper
+                    .writerWithDefaultPrettyPrinter()
+                    .writeValue(output, withExtensions);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to add extensions to " + ir, e);
+        }
     }
 
-    private String getSerializedExtensions() {
+    private JsonNode getConjureExtensionsJson() {
         try {
             Map<Object, Object> extData = new HashMap<>();
             if (getExtensionsFile().isPresent()) {
@@ -122,9 +296,9 @@ public abstract class CompileIrTask extends DefaultTask {
             extData.putAll(getConjureExtensions().get());
             extData.put(
                     "recommended-product-dependencies", getProductDependencies().get());
-            return GenerateConjureServiceDependenciesTask.jsonMapper.writeValueAsString(extData);
+            return GenerateConjureServiceDependenciesTask.jsonMapper.valueToTree(extData);
         } catch (IOException e) {
-            throw new RuntimeException("Failed to serialize conjure extensions", e);
+            throw new RuntimeException("Failed to read conjure extensions", e);
         }
     }
 }
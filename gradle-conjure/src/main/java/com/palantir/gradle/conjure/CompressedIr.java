@@ -0,0 +1,92 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.file.FileCollection;
+
+/**
+ * Gzip compressed IRs, which can be published next to the plain ones when {@link #PROPERTY} is set. Consumers
+ * resolving IRs through {@link #decompressed} get plain IRs either way, as compressed ones are decompressed by an
+ * artifact transform, once per IR rather than by every task reading it. Generators only read IRs from plain files, so
+ * the decompressed copy can't be avoided altogether.
+ */
+final class CompressedIr {
+    static final String PROPERTY = "com.palantir.conjure.compressed_ir";
+
+    static final Attribute<String> COMPRESSION = Attribute.of("com.palantir.conjure.compression", String.class);
+    static final String NONE = "none";
+    static final String GZIP = "gzip";
+
+    static final String EXTENSION = "conjure.json.gz";
+
+    static boolean isEnabled(Project project) {
+        return project.getProviders()
+                .gradleProperty(PROPERTY)
+                .map(Boolean::parseBoolean)
+                .getOrElse(false);
+    }
+
+    /** The IRs resolved by {@code configuration}, with compressed ones decompressed. */
+    static FileCollection decompressed(Project project, Configuration configuration) {
+        registerDecompression(project.getDependencies());
+        return configuration
+                .getIncoming()
+                .artifactView(view -> view.attributes(attributes -> attributes.attribute(COMPRESSION, NONE)))
+                .getFiles();
+    }
+
+    private static void registerDecompression(DependencyHandler dependencies) {
+        if (dependencies.getArtifactTypes().findByName(EXTENSION) != null) {
+            return;
+        }
+        dependencies.getAttributesSchema().attribute(COMPRESSION);
+        // Only IRs declared with @conjure.json.gz, as every other .gz artifact, e.g. a generator's .tar.gz, is typed gz
+        dependencies.getArtifactTypes().maybeCreate(EXTENSION).getAttributes().attribute(COMPRESSION, GZIP);
+        dependencies.registerTransform(DecompressIrTransform.class, spec -> {
+            spec.getFrom().attribute(COMPRESSION, GZIP);
+            spec.getTo().attribute(COMPRESSION, NONE);
+        });
+    }
+
+    static void compress(File ir, File output) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(output))) {
+            Files.copy(ir.toPath(), out);
+        }
+    }
+
+    static void decompress(File compressedIr, File output) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(compressedIr))) {
+            Files.copy(in, output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private CompressedIr() {}
+}
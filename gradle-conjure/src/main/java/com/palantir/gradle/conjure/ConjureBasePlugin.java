@@ -18,30 +18,22 @@ package com.palantir.gradle.conjure;
 
 import com.palantir.gradle.conjure.api.ConjureExtension;
 import com.palantir.gradle.conjure.api.ConjureProductDependenciesExtension;
-import java.io.File;
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.util.Collections;
 import java.util.Objects;
-import org.apache.commons.io.FileUtils;
-import org.gradle.api.Action;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
-import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.attributes.Attribute;
 import org.gradle.api.attributes.Usage;
 import org.gradle.api.file.Directory;
-import org.gradle.api.file.SourceDirectorySet;
 import org.gradle.api.plugins.BasePlugin;
 import org.gradle.api.provider.Provider;
-import org.gradle.api.tasks.Copy;
 import org.gradle.api.tasks.TaskProvider;
 
 public final class ConjureBasePlugin implements Plugin<Project> {
     static final Attribute<Usage> CONJURE_USAGE = Attribute.of("com.palantir.conjure", Usage.class);
 
     static final String COMPILE_IR_TASK = "compileIr";
+    static final String COMPRESS_IR_TASK = "compressIr";
     static final String SERVICE_DEPENDENCIES_TASK = "generateConjureServiceDependencies";
 
     static final String CONJURE_IR_CONFIGURATION = "conjureIr";
@@ -60,10 +52,11 @@ public final class ConjureBasePlugin implements Plugin<Project> {
                         ConjureProductDependenciesExtension.class,
                         project);
         conjureExtension = project.getExtensions().create(ConjureExtension.EXTENSION_NAME, ConjureExtension.class);
-        SourceDirectorySet conjureSourceSet = createConjureSourceSet(project);
-        TaskProvider<Copy> copyConjureSourcesTask = createCopyConjureSourceTask(project, conjureSourceSet);
-        compileIrProvider =
-                createIrTasks(project, conjureProductDependenciesExtension, conjureExtension, copyConjureSourcesTask);
+        compileIrProvider = createIrTasks(
+                project,
+                conjureProductDependenciesExtension,
+                conjureExtension,
+                project.getLayout().getProjectDirectory().dir("src/main/conjure"));
         createServiceDependenciesTask(project, conjureProductDependenciesExtension);
         createOutgoingConfiguration(project, compileIrProvider);
     }
@@ -78,50 +71,59 @@ public final class ConjureBasePlugin implements Plugin<Project> {
                 compileIrProvider, "compileIr task has not been registered. Has this plugin been applied?");
     }
 
-    private static SourceDirectorySet createConjureSourceSet(Project project) {
-        // Conjure code source set
-        SourceDirectorySet conjureSourceSet = project.getObjects().sourceDirectorySet("conjure", "conjure");
-        conjureSourceSet.setSrcDirs(Collections.singleton("src/main/conjure"));
-        conjureSourceSet.setIncludes(Collections.singleton("**/*.yml"));
-
-        return conjureSourceSet;
-    }
-
     private static TaskProvider<CompileIrTask> createIrTasks(
             Project project,
             ConjureProductDependenciesExtension pdepsExtension,
             ConjureExtension conjureExtension,
-            TaskProvider<Copy> copyConjureSourcesTask) {
+            Directory conjureSourceDirectory) {
         TaskProvider<ExtractExecutableTask> extractCompilerTask = ExtractConjurePlugin.applyConjureCompiler(project);
 
         Provider<Directory> irDir = project.getLayout().getBuildDirectory().dir("conjure-ir");
 
+        TaskProvider<CompileIrTask> compileIrTask = project.getTasks()
+                .register(COMPILE_IR_TASK, CompileIrTask.class, compileIr -> {
+                    compileIr.setDescription(
+                            "Converts your Conjure YML files into a single portable JSON file in IR format.");
+                    compileIr.setGroup(ConjureBasePlugin.TASK_GROUP);
+
+                    compileIr.getInputDirectory().set(conjureSourceDirectory);
+                    compileIr
+                            .getExecutableDir()
+                            .set(extractCompilerTask.flatMap(ExtractExecutableTask::getOutputDirectory));
+                    compileIr
+                            .getOutputIrFile()
+                            .set(irDir.map(dir -> dir.file(project.getName() + ".conjure.json")));
+                    compileIr.getProductDependencies().set(project.provider(pdepsExtension::getProductDependencies));
+                    compileIr
+                            .getOptions()
+                            .set(project.provider(() -> conjureExtension.getParser().getProperties()));
+                    compileIr.dependsOn(extractCompilerTask);
+                });
+
         project.getTasks().register("rawIr", CompileIrTask.class, rawIr -> {
-            rawIr.getInputDirectory().set(project.getLayout().dir(copyConjureSourcesTask.map(Copy::getDestinationDir)));
+            rawIr.getInputDirectory().set(conjureSourceDirectory);
             rawIr.getExecutableDir().set(extractCompilerTask.flatMap(ExtractExecutableTask::getOutputDirectory));
             rawIr.getOutputIrFile().set(irDir.map(dir -> dir.file("rawIr.conjure.json")));
             rawIr.getOptions()
                     .set(project.provider(() -> conjureExtension.getParser().getProperties()));
-            rawIr.dependsOn(copyConjureSourcesTask);
+            // Only the extensions differ from compileIr, which every build using the IR runs anyway, so its output is
+            // reused rather than parsing the YAML again, unless either task has been configured to compile differently
+            rawIr.getRawIrFile()
+                    .set(compileIrTask.flatMap(compileIr -> compilesSameIr(compileIr, rawIr)
+                            ? compileIr.getOutputIrFile()
+                            : project.getObjects().fileProperty()));
             rawIr.dependsOn(extractCompilerTask);
         });
 
-        return project.getTasks().register(COMPILE_IR_TASK, CompileIrTask.class, compileIr -> {
-            compileIr.setDescription("Converts your Conjure YML files into a single portable JSON file in IR format.");
-            compileIr.setGroup(ConjureBasePlugin.TASK_GROUP);
-
-            compileIr
-                    .getInputDirectory()
-                    .set(project.getLayout().dir(copyConjureSourcesTask.map(Copy::getDestinationDir)));
-            compileIr.getExecutableDir().set(extractCompilerTask.flatMap(ExtractExecutableTask::getOutputDirectory));
-            compileIr.getOutputIrFile().set(irDir.map(dir -> dir.file(project.getName() + ".conjure.json")));
-            compileIr.getProductDependencies().set(project.provider(pdepsExtension::getProductDependencies));
-            compileIr
-                    .getOptions()
-                    .set(project.provider(() -> conjureExtension.getParser().getProperties()));
-            compileIr.dependsOn(copyConjureSourcesTask);
-            compileIr.dependsOn(extractCompilerTask);
-        });
+        return compileIrTask;
+    }
+
+    private static boolean compilesSameIr(CompileIrTask compileIr, CompileIrTask rawIr) {
+        return Objects.equals(compileIr.getInputDirectory().getOrNull(), rawIr.getInputDirectory().getOrNull())
+                && Objects.equals(compileIr.getExecutableDir().getOrNull(), rawIr.getExecutableDir().getOrNull())
+                && Objects.equals(compileIr.getOptions().getOrNull(), rawIr.getOptions().getOrNull())
+                && compileIr.getIncremental().get().equals(rawIr.getIncremental().get())
+                && compileIr.getCanonical().get().equals(rawIr.getCanonical().get());
     }
 
     private static void createOutgoingConfiguration(Project project, TaskProvider<CompileIrTask> compileIr) {
@@ -130,37 +132,29 @@ public final class ConjureBasePlugin implements Plugin<Project> {
             conf.setCanBeConsumed(true);
             conf.setVisible(true);
             conf.getAttributes().attribute(CONJURE_USAGE, project.getObjects().named(Usage.class, "conjure"));
+            conf.getAttributes().attribute(CompressedIr.COMPRESSION, CompressedIr.NONE);
         });
         project.getArtifacts()
                 .add(
                         conjureIr.getName(),
                         compileIr.flatMap(CompileIrTask::getOutputIrFile),
                         artifact -> artifact.builtBy(compileIr));
-    }
 
-    private static TaskProvider<Copy> createCopyConjureSourceTask(Project project, SourceDirectorySet sourceset) {
-        File buildDir = new File(project.getBuildDir(), "conjure");
-        TaskProvider<Copy> copyConjureSourcesTask = project.getTasks()
-                .register("copyConjureSourcesIntoBuild", Copy.class, task -> {
-                    task.into(buildDir).from(sourceset);
-
-                    // Replacing this with a lambda is not supported for build caching
-                    // (see https://github.com/gradle/gradle/issues/5510)
-                    task.doFirst(new Action<Task>() {
-                        @Override
-                        public void execute(Task _task) {
-                            try {
-                                FileUtils.deleteDirectory(buildDir);
-                            } catch (IOException e) {
-                                throw new UncheckedIOException(e);
-                            }
-                        }
+        if (CompressedIr.isEnabled(project)) {
+            TaskProvider<CompressIrTask> compressIr = project.getTasks()
+                    .register(COMPRESS_IR_TASK, CompressIrTask.class, task -> {
+                        task.getIrFile().set(compileIr.flatMap(CompileIrTask::getOutputIrFile));
+                        task.getOutputFile()
+                                .set(project.getLayout()
+                                        .getBuildDirectory()
+                                        .file("conjure-ir/" + project.getName() + "." + CompressedIr.EXTENSION));
                     });
-                });
-
-        ConjurePlugin.registerClean(project, copyConjureSourcesTask);
-
-        return copyConjureSourcesTask;
+            conjureIr.getOutgoing().getVariants().create(CompressedIr.GZIP, variant -> {
+                variant.getAttributes().attribute(CompressedIr.COMPRESSION, CompressedIr.GZIP);
+                variant.artifact(
+                        compressIr.flatMap(CompressIrTask::getOutputFile), artifact -> artifact.builtBy(compressIr));
+            });
+        }
     }
 
     private static void createServiceDependenciesTask(Project project, ConjureProductDependenciesExtension ext) {
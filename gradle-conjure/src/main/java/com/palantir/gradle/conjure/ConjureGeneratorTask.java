@@ -16,34 +16,66 @@
 
 package com.palantir.gradle.conjure;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.palantir.gradle.conjure.api.GeneratorOptions;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
-import org.apache.commons.io.FileUtils;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.gradle.api.Action;
 import org.gradle.api.Task;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.SourceTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @CacheableTask
 public abstract class ConjureGeneratorTask extends SourceTask {
+    /** Maximum number of input files a single generator task will generate concurrently. */
+    static final String GENERATOR_PARALLELISM_PROPERTY = "com.palantir.conjure.generator_parallelism";
+
+    /** Whether Java generators only generate what changed in the IR since the last run, see {@link IrDiff}. */
+    static final String SELECTIVE_REGENERATION_PROPERTY = "com.palantir.conjure.selective_java_regeneration";
+
     private Supplier<GeneratorOptions> options;
 
     public ConjureGeneratorTask() {
+        getParallelism()
+                .convention(getProject()
+                        .getProviders()
+                        .gradleProperty(GENERATOR_PARALLELISM_PROPERTY)
+                        .map(Integer::parseInt)
+                        .orElse(1));
+        getSelectiveRegeneration().convention(false);
+
         // @TaskAction uses doFirst I think, because other actions prepended using doFirst end up happening AFTER the
         // main task. Intentionally not using a lambda because this breaks Gradle caching
         doLast(new Action<Task>() {
@@ -68,6 +100,26 @@ public abstract class ConjureGeneratorTask extends SourceTask {
     @PathSensitive(PathSensitivity.NONE)
     public abstract RegularFileProperty getExecutablePath();
 
+    /**
+     * How many input files may be generated concurrently. Defaults to 1, which generates one file after another.
+     * Files whose {@link #outputDirectoryFor(File) output directories} overlap are always generated sequentially.
+     */
+    @Internal
+    public abstract Property<Integer> getParallelism();
+
+    /**
+     * Whether to compare the IR to the one generated last time and only generate the definitions affected by the
+     * change, leaving every other file untouched. Everything is generated again when definitions were removed, or the
+     * generator, its options or the output changed in between. Only sound for generators which write the code for
+     * each definition separately, such as the Java generator.
+     *
+     * <p>The output is the same as generating everything, so it is safe to cache. Output restored from the build cache
+     * or changed in any other way no longer matches what was recorded in the temporary directory, so the next run
+     * generates everything. Still an input, so that switching modes reruns the task rather than trusting either.
+     */
+    @Input
+    public abstract Property<Boolean> getSelectiveRegeneration();
+
     public final void setOptions(Supplier<GeneratorOptions> options) {
         this.options = options;
     }
@@ -85,29 +137,192 @@ public abstract class ConjureGeneratorTask extends SourceTask {
         return getOutputDirectory().getAsFile().get();
     }
 
+    /**
+     * Whether a file or directory in the output, given by its path relative to {@link #getOutputDirectory()}, should
+     * be kept even though the generator didn't write it.
+     */
+    protected boolean isPreservedOutput(String _relativePath) {
+        return false;
+    }
+
     /** Entry point for the task. */
     public void compileFiles() {
-        getSource().getFiles().forEach(file -> {
-            File thisOutputDirectory = outputDirectoryFor(file);
+        Map<File, File> outputDirectories = new LinkedHashMap<>();
+        getSource().getFiles().forEach(file -> outputDirectories.put(file, outputDirectoryFor(file)));
+        List<File> files = ImmutableList.copyOf(outputDirectories.keySet());
 
-            try {
-                FileUtils.deleteDirectory(thisOutputDirectory);
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
+        // Each file replaces the contents of its output directory, so files whose directories are the same or nested
+        // inside one another must not run concurrently
+        int parallelism = outputDirectoriesOverlap(outputDirectories.values()) ? 1 : getParallelism().get();
+
+        // Everything touching the task or project is resolved here, as files may be generated on other threads
+        File executable = OsUtils.appendDotBatIfWindows(getExecutablePath().get().getAsFile());
+        Generation generation = new Generation(
+                GradleExecUtils.prepare(getProject(), executable),
+                executable,
+                getTemporaryDir(),
+                getOutputDirectory().getAsFile().get(),
+                getSelectiveRegeneration().get(),
+                this::isPreservedOutput);
+        Map<File, List<String>> optionArgs = new LinkedHashMap<>();
+        files.forEach(file -> optionArgs.put(file, RenderGeneratorOptions.toArgs(getOptions(), requiredOptions(file))));
+
+        ParallelUtils.forEach(
+                files,
+                parallelism,
+                "conjure-generator",
+                file -> generation.compileFile(
+                        file,
+                        outputDirectories.get(file),
+                        stagingKey(file),
+                        optionArgs.get(file)));
+    }
+
+    private static boolean outputDirectoriesOverlap(Collection<File> outputDirectories) {
+        List<Path> paths = outputDirectories.stream()
+                .map(directory -> directory.toPath().toAbsolutePath().normalize())
+                .collect(Collectors.toList());
+        for (int i = 0; i < paths.size(); i++) {
+            for (int j = i + 1; j < paths.size(); j++) {
+                if (paths.get(i).startsWith(paths.get(j)) || paths.get(j).startsWith(paths.get(i))) {
+                    return true;
+                }
             }
+        }
+        return false;
+    }
 
-            getProject().mkdir(thisOutputDirectory);
+    /**
+     * Names the staging directory and previously generated IR of {@code file}, which must stay the same when other
+     * source files are added or removed. The path hash tells apart files of the same name in different directories.
+     */
+    private static String stagingKey(File file) {
+        String pathHash = Hashing.sha256()
+                .hashString(file.getAbsolutePath(), StandardCharsets.UTF_8)
+                .toString()
+                .substring(0, 12);
+        return file.getName() + "-" + pathHash;
+    }
+
+    private static final class Generation {
+        private static final Logger log = LoggerFactory.getLogger(ConjureGeneratorTask.class);
+
+        private final GradleExecUtils.PreparedExec generator;
+        private final File executable;
+        private final File temporaryDir;
+        private final File outputRoot;
+        private final boolean selective;
+        private final Predicate<String> isPreservedOutput;
+
+        Generation(
+                GradleExecUtils.PreparedExec generator,
+                File executable,
+                File temporaryDir,
+                File outputRoot,
+                boolean selective,
+                Predicate<String> isPreservedOutput) {
+            this.generator = generator;
+            this.executable = executable;
+            this.temporaryDir = temporaryDir;
+            this.outputRoot = outputRoot;
+            this.selective = selective;
+            this.isPreservedOutput = isPreservedOutput;
+        }
+
+        void compileFile(File file, File thisOutputDirectory, String stagingKey, List<String> optionArgs) {
+            File staging = OutputSync.stagingDirectory(temporaryDir, stagingKey);
+            File previousIr = new File(temporaryDir, "previous-" + stagingKey + ".conjure.json");
+            File previousKeyFile = new File(temporaryDir, "previous-" + stagingKey + ".key");
+            Optional<File> changedIr = selective
+                    ? changedIr(file, thisOutputDirectory, previousIr, previousKeyFile, stagingKey, optionArgs)
+                    : Optional.empty();
+            File generateFrom = changedIr.orElse(file);
 
             List<String> generateCommand =
-                    ImmutableList.of("generate", file.getAbsolutePath(), thisOutputDirectory.getAbsolutePath());
-
-            GradleExecUtils.exec(
-                    getProject(),
-                    "run generator",
-                    OsUtils.appendDotBatIfWindows(getExecutablePath().get().getAsFile()),
-                    generateCommand,
-                    RenderGeneratorOptions.toArgs(getOptions(), requiredOptions(file)));
-        });
+                    ImmutableList.of("generate", generateFrom.getAbsolutePath(), staging.getAbsolutePath());
+
+            generator.exec("run generator", generateCommand, optionArgs, ImmutableList.of(generateFrom));
+
+            if (changedIr.isPresent()) {
+                OutputSync.overlay(staging, thisOutputDirectory);
+            } else {
+                Path relativeOutputDirectory = outputRoot.toPath().relativize(thisOutputDirectory.toPath());
+                OutputSync.sync(
+                        staging,
+                        thisOutputDirectory,
+                        relativePath -> isPreservedOutput.test(relativeOutputDirectory
+                                .resolve(relativePath)
+                                .toString()
+                                .replace(File.separatorChar, '/')));
+            }
+
+            if (selective) {
+                try {
+                    Files.copy(file.toPath(), previousIr.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    Files.writeString(previousKeyFile.toPath(), generationKey(thisOutputDirectory, optionArgs));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to record generated IR", e);
+                }
+            }
+        }
+
+        /**
+         * An IR with just the definitions of {@code file} which changed since it was last generated into
+         * {@code thisOutputDirectory}, or empty if everything has to be generated.
+         */
+        private Optional<File> changedIr(
+                File file,
+                File thisOutputDirectory,
+                File previousIr,
+                File previousKeyFile,
+                String stagingKey,
+                List<String> optionArgs) {
+            try {
+                if (!previousIr.isFile()
+                        || !previousKeyFile.isFile()
+                        || !Files.readString(previousKeyFile.toPath())
+                                .equals(generationKey(thisOutputDirectory, optionArgs))) {
+                    Files.deleteIfExists(previousKeyFile.toPath());
+                    return Optional.empty();
+                }
+                // Whatever happens next, the output will no longer match the previous IR
+                Files.delete(previousKeyFile.toPath());
+
+                ObjectMapper mapper = GenerateConjureServiceDependenciesTask.jsonMapper;
+                Optional<ObjectNode> changed =
+                        IrDiff.changedSubset(mapper.readTree(previousIr), mapper.readTree(file));
+                if (!changed.isPresent()) {
+                    return Optional.empty();
+                }
+                File changedIr = new File(temporaryDir, "changed-" + stagingKey + ".conjure.json");
+                mapper.writeValue(changedIr, changed.get());
+                log.info("Only generating the definitions of {} affected by the latest change", file);
+                return Optional.of(changedIr);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to compare " + file + " to the previously generated IR", e);
+            }
+        }
+
+        /**
+         * Identifies the generator, its options and the current contents of {@code thisOutputDirectory}, which must
+         * all be the same as last time for the output to still match the previous IR.
+         */
+        private String generationKey(File thisOutputDirectory, List<String> optionArgs) throws IOException {
+            Hasher hasher = Hashing.sha256()
+                    .newHasher()
+                    .putString(executable.getAbsolutePath(), StandardCharsets.UTF_8)
+                    .putBytes(FileHasher.hash(executable).asBytes())
+                    .putString(String.join(" ", optionArgs), StandardCharsets.UTF_8);
+            try (Stream<Path> outputs = Files.walk(thisOutputDirectory.toPath())) {
+                for (Path output : (Iterable<Path>) outputs.sorted()::iterator) {
+                    BasicFileAttributes attributes = Files.readAttributes(output, BasicFileAttributes.class);
+                    hasher.putString(output.toString(), StandardCharsets.UTF_8)
+                            .putLong(attributes.size())
+                            .putLong(attributes.lastModifiedTime().toMillis());
+                }
+            }
+            return hasher.hash().toString();
+        }
     }
 
     /**
@@ -16,18 +16,12 @@
 
 package com.palantir.gradle.conjure;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
-import com.palantir.conjure.java.serialization.ObjectMappers;
 import com.palantir.gradle.conjure.api.ConjureExtension;
-import com.palantir.gradle.dist.ProductDependency;
 import com.palantir.gradle.dist.RecommendedProductDependenciesExtension;
 import com.palantir.gradle.dist.RecommendedProductDependenciesPlugin;
-import com.palantir.logsafe.exceptions.SafeRuntimeException;
 import java.io.File;
-import java.io.IOException;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -43,7 +37,6 @@ import org.gradle.api.tasks.Copy;
 import org.gradle.api.tasks.TaskProvider;
 
 public final class ConjureJavaLocalCodegenPlugin implements Plugin<Project> {
-    private static final ObjectMapper OBJECT_MAPPER = ObjectMappers.newClientObjectMapper();
     private static final String CONJURE_CONFIGURATION = "conjure";
     private static final Pattern DEFINITION_NAME =
             Pattern.compile("(.*)-([0-9]+\\.[0-9]+\\.[0-9]+(?:-rc[0-9]+)?(?:-[0-9]+-g[a-f0-9]+)?)(\\.conjure)?\\.json");
@@ -56,15 +49,23 @@ public final class ConjureJavaLocalCodegenPlugin implements Plugin<Project> {
                 project.getExtensions().create(ConjureExtension.EXTENSION_NAME, ConjureExtension.class);
 
         Configuration conjureIrConfiguration = project.getConfigurations().create(CONJURE_CONFIGURATION);
+        // For reading product dependencies without downloading the IR
+        Configuration conjureMetadataConfiguration = IrMetadata.createConfiguration(project, conjureIrConfiguration);
         TaskProvider<Copy> extractConjureIr = project.getTasks().register("extractConjureIr", Copy.class, task -> {
             task.rename(DEFINITION_NAME, "$1.conjure.json");
-            task.from(conjureIrConfiguration);
+            task.from(CompressedIr.decompressed(project, conjureIrConfiguration));
             task.into(project.getLayout().getBuildDirectory().dir("conjure-ir"));
         });
 
         TaskProvider<ExtractExecutableTask> extractJavaTask = ExtractConjurePlugin.applyConjureJava(project);
 
-        setupSubprojects(project, extension, extractJavaTask, extractConjureIr, conjureIrConfiguration);
+        setupSubprojects(
+                project,
+                extension,
+                extractJavaTask,
+                extractConjureIr,
+                conjureIrConfiguration,
+                conjureMetadataConfiguration);
     }
 
     private static void setupSubprojects(
@@ -72,11 +73,12 @@ public final class ConjureJavaLocalCodegenPlugin implements Plugin<Project> {
             ConjureExtension extension,
             TaskProvider<ExtractExecutableTask> extractJavaTask,
             TaskProvider<Copy> extractConjureIr,
-            Configuration conjureIrConfiguration) {
+            Configuration conjureIrConfiguration,
+            Configuration conjureMetadataConfiguration) {
         project.getChildProjects().forEach((_name, subproject) -> {
             subproject.getPluginManager().apply(JavaLibraryPlugin.class);
             subproject.getPluginManager().apply(RecommendedProductDependenciesPlugin.class);
-            createGenerateTask(subproject, extension, extractJavaTask, extractConjureIr);
+            createGenerateTask(subproject, extension, extractJavaTask, extractConjureIr, conjureMetadataConfiguration);
         });
 
         project.afterEvaluate(_p -> {
@@ -130,16 +132,23 @@ public final class ConjureJavaLocalCodegenPlugin implements Plugin<Project> {
             Project project,
             ConjureExtension extension,
             TaskProvider<ExtractExecutableTask> extractJavaTask,
-            TaskProvider<Copy> extractConjureIr) {
+            TaskProvider<Copy> extractConjureIr,
+            Configuration conjureMetadataConfiguration) {
         ConjurePlugin.ignoreFromCheckUnusedDependencies(project);
 
+        Provider<IrProductDependencies> irProductDependencies = IrProductDependencies.get(project);
         Provider<File> conjureIrFile = extractConjureIr.map(
                 irTask -> new File(irTask.getDestinationDir(), project.getName() + ".conjure.json"));
+        // Prefer the much smaller metadata, falling back to the IR for APIs published without it
+        Provider<File> productDependenciesFile = project.provider(() -> IrMetadata.find(
+                                conjureMetadataConfiguration, project.getName())
+                        .orElse(null))
+                .orElse(conjureIrFile);
 
         project.getExtensions()
                 .getByType(RecommendedProductDependenciesExtension.class)
                 .getRecommendedProductDependenciesProvider()
-                .set(conjureIrFile.map(ConjureJavaLocalCodegenPlugin::extractProductDependencies));
+                .set(productDependenciesFile.map(file -> irProductDependencies.get().productDependencies(file)));
 
         TaskProvider<ConjureJavaLocalGeneratorTask> generateJava = project.getTasks()
                 .register("generateConjure", ConjureJavaLocalGeneratorTask.class, task -> {
@@ -178,17 +187,4 @@ public final class ConjureJavaLocalCodegenPlugin implements Plugin<Project> {
     private static String sanitizePackageName(String group) {
         return group.replaceAll("-", "");
     }
-
-    private static Set<ProductDependency> extractProductDependencies(File irFile) {
-        try {
-            MinimalConjureDefinition conjureDefinition =
-                    OBJECT_MAPPER.readValue(irFile, MinimalConjureDefinition.class);
-            return conjureDefinition
-                    .extensions()
-                    .map(MinimalConjureDefinition.Extensions::productDependencies)
-                    .orElseGet(Collections::emptySet);
-        } catch (IOException e) {
-            throw new SafeRuntimeException("Failed to parse conjure definition", e);
-        }
-    }
 }
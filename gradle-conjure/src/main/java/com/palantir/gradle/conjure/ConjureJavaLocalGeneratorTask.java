@@ -20,20 +20,21 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import java.io.File;
-import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import org.apache.commons.io.FileUtils;
+import java.util.Set;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
@@ -45,10 +46,21 @@ public class ConjureJavaLocalGeneratorTask extends SourceTask {
     private static final ImmutableSet<String> GENERATOR_FLAGS =
             ImmutableSet.of("objects", "jersey", "undertow", "dialogue");
 
+    /** Generate every requested flag in a single conjure-java invocation rather than one invocation per flag. */
+    static final String SINGLE_SESSION_PROPERTY = "com.palantir.conjure.java_single_session";
+
     private final RegularFileProperty executablePath = getProject().getObjects().fileProperty();
     private final DirectoryProperty outputDirectory = getProject().getObjects().directoryProperty();
     private final MapProperty<String, Object> options =
             getProject().getObjects().mapProperty(String.class, Object.class);
+    private final Property<Boolean> singleSession = getProject()
+            .getObjects()
+            .property(Boolean.class)
+            .convention(getProject()
+                    .getProviders()
+                    .gradleProperty(SINGLE_SESSION_PROPERTY)
+                    .map(Boolean::parseBoolean)
+                    .orElse(false));
 
     // Set the path sensitivity of the sources, which would otherwise default to ABSOLUTE
     @Override
@@ -73,6 +85,16 @@ public class ConjureJavaLocalGeneratorTask extends SourceTask {
         return this.options;
     }
 
+    /**
+     * Whether all requested flags are passed to one generator invocation, so the IR is only parsed once and the
+     * generator can emit objects, jersey, undertow and dialogue code in one session. Defaults to invoking the
+     * generator once per flag.
+     */
+    @Internal
+    public final Property<Boolean> getSingleSession() {
+        return singleSession;
+    }
+
     @TaskAction
     public final void generate() {
         Preconditions.checkArgument(getSource().getFiles().size() == 1, "Exactly one input file must be specified");
@@ -84,14 +106,27 @@ public class ConjureJavaLocalGeneratorTask extends SourceTask {
         File definitionFile = getSource().getFiles().iterator().next();
 
         File outputDir = outputDirectory.getAsFile().get();
+        File staging = OutputSync.stagingDirectory(getTemporaryDir(), "java");
 
-        try {
-            FileUtils.deleteDirectory(outputDir);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        List<String> generateCommand =
+                ImmutableList.of("generate", definitionFile.getAbsolutePath(), staging.getAbsolutePath());
+
+        generateInto(generatorOptions, definitionFile, generateCommand);
+        OutputSync.sync(staging, outputDir, _relativePath -> false);
+    }
 
-        getProject().mkdir(outputDir);
+    private void generateInto(Map<String, Object> generatorOptions, File definitionFile, List<String> generateCommand) {
+        if (singleSession.get()) {
+            Set<String> requestedFlags = Sets.intersection(GENERATOR_FLAGS, generatorOptions.keySet());
+            GradleExecUtils.exec(
+                    getProject(),
+                    "generate " + String.join(", ", requestedFlags),
+                    getExecutablePath().getAsFile().get(),
+                    generateCommand,
+                    RenderGeneratorOptions.toArgs(generatorOptions, Collections.emptyMap()),
+                    ImmutableList.of(definitionFile));
+            return;
+        }
 
         GENERATOR_FLAGS.forEach(generatorFlag -> {
             if (!generatorOptions.containsKey(generatorFlag)) {
@@ -102,15 +137,13 @@ public class ConjureJavaLocalGeneratorTask extends SourceTask {
             Map<String, Object> filteredOptions = Maps.filterKeys(
                     generatorOptions, key -> !GENERATOR_FLAGS.contains(key) || generatorFlag.equals(key));
 
-            List<String> generateCommand =
-                    ImmutableList.of("generate", definitionFile.getAbsolutePath(), outputDir.getAbsolutePath());
-
             GradleExecUtils.exec(
                     getProject(),
                     "generate " + generatorFlag,
                     getExecutablePath().getAsFile().get(),
                     generateCommand,
-                    RenderGeneratorOptions.toArgs(filteredOptions, Collections.emptyMap()));
+                    RenderGeneratorOptions.toArgs(filteredOptions, Collections.emptyMap()),
+                    ImmutableList.of(definitionFile));
         });
     }
 }
@@ -21,8 +21,13 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.palantir.gradle.conjure.api.ConjureExtension;
 import com.palantir.gradle.conjure.api.GeneratorOptions;
+import com.palantir.gradle.dist.ProductDependency;
+import com.palantir.gradle.dist.RecommendedProductDependenciesExtension;
+import com.palantir.gradle.dist.RecommendedProductDependenciesPlugin;
 import java.io.File;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -35,6 +40,7 @@ import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.plugins.BasePlugin;
 import org.gradle.api.plugins.JavaLibraryPlugin;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskProvider;
 
 public final class ConjureLocalPlugin implements Plugin<Project> {
@@ -52,6 +58,8 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
         project.getPlugins().apply(BasePlugin.class);
 
         Configuration conjureIrConfiguration = project.getConfigurations().maybeCreate(CONJURE_CONFIGURATION);
+        FileCollection conjureIrFiles = CompressedIr.decompressed(project, conjureIrConfiguration);
+        Configuration conjureMetadataConfiguration = IrMetadata.createConfiguration(project, conjureIrConfiguration);
         Configuration conjureGeneratorsConfiguration =
                 project.getConfigurations().maybeCreate(ConjurePlugin.CONJURE_GENERATORS_CONFIGURATION_NAME);
 
@@ -66,25 +74,35 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
         ConjurePlugin.applyDependencyForIdeTasks(project, generateConjure);
 
         setupConjureJava(
-                project, immutableOptionsSupplier(extension::getJava), conjureIrConfiguration, generateConjure);
+                project,
+                immutableOptionsSupplier(extension::getJava),
+                conjureIrFiles,
+                conjureMetadataConfiguration,
+                generateConjure);
         setupConjurePython(
-                project, immutableOptionsSupplier(extension::getPython), conjureIrConfiguration, generateConjure);
+                project, immutableOptionsSupplier(extension::getPython), conjureIrFiles, generateConjure);
         setupConjureTypeScript(
-                project, immutableOptionsSupplier(extension::getTypescript), conjureIrConfiguration, generateConjure);
+                project, immutableOptionsSupplier(extension::getTypescript), conjureIrFiles, generateConjure);
         setupGenericConjureProjects(
-                project, extension, conjureIrConfiguration, generateConjure, conjureGeneratorsConfiguration);
+                project, extension, conjureIrFiles, generateConjure, conjureGeneratorsConfiguration);
     }
 
     private void setupConjureJava(
             Project project,
             Supplier<GeneratorOptions> optionsSupplier,
-            Configuration conjureIrConfiguration,
+            FileCollection conjureIrFiles,
+            Configuration conjureMetadataConfiguration,
             TaskProvider<Task> generateConjure) {
         Project subproj = project.findProject(JAVA_PROJECT_NAME);
         if (subproj == null) {
             return;
         }
 
+        subproj.getPlugins().withType(RecommendedProductDependenciesPlugin.class, _plugin -> subproj.getExtensions()
+                .getByType(RecommendedProductDependenciesExtension.class)
+                .getRecommendedProductDependenciesProvider()
+                .set(productDependencies(project, conjureIrFiles, conjureMetadataConfiguration)));
+
         TaskProvider<ExtractExecutableTask> extractJavaTask = ExtractConjurePlugin.applyConjureJava(project);
 
         subproj.getPluginManager().apply(JavaLibraryPlugin.class);
@@ -103,7 +121,7 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
 
                         return generatorOptions;
                     });
-                    task.setSource(conjureIrConfiguration);
+                    task.setSource(conjureIrFiles);
                     task.getExecutablePath().set(extractJavaTask.flatMap(ExtractExecutableTask::getExecutable));
                     task.getOutputDirectory()
                             .set(subproj.getLayout()
@@ -123,10 +141,31 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
         ConjurePlugin.registerClean(project, generateJava);
     }
 
+    /**
+     * The product dependencies recommended by all the APIs, read from their much smaller metadata, falling back to the
+     * IR for APIs published without it.
+     */
+    private static Provider<Set<ProductDependency>> productDependencies(
+            Project project, FileCollection conjureIrFiles, Configuration conjureMetadataConfiguration) {
+        Provider<IrProductDependencies> irProductDependencies = IrProductDependencies.get(project);
+        return project.provider(() -> {
+            Set<ProductDependency> productDependencies = new LinkedHashSet<>();
+            for (File irFile : conjureIrFiles) {
+                String apiName = ConjureLocalGenerateTask.parseProductNameAndVersion(irFile.getName())
+                        .name();
+                productDependencies.addAll(irProductDependencies
+                        .get()
+                        .productDependencies(
+                                IrMetadata.find(conjureMetadataConfiguration, apiName).orElse(irFile)));
+            }
+            return productDependencies;
+        });
+    }
+
     private void setupGenericConjureProjects(
             Project project,
             ConjureExtension conjureExtension,
-            Configuration conjureIrConfiguration,
+            FileCollection conjureIrFiles,
             TaskProvider<Task> generateConjure,
             Configuration conjureGeneratorsConfiguration) {
         // Validating that each subproject has a corresponding generator.
@@ -168,12 +207,13 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
             FileCollection matchingGeneratorDeps = conjureGeneratorsConfiguration.fileCollection(
                     dep -> dep.getName().equals(ConjurePlugin.CONJURE_GENERATOR_DEP_PREFIX + subprojectName));
 
-            TaskProvider<ExtractExecutableTask> extractConjureGeneratorTask = ExtractExecutableTask.createExtractTask(
-                    project,
-                    "extractConjure" + StringUtils.capitalize(subprojectName),
-                    matchingGeneratorDeps,
-                    new File(subproject.getBuildDir(), "generator"),
-                    String.format("conjure-%s", subprojectName));
+            TaskProvider<ExtractExecutableTask> extractConjureGeneratorTask =
+                    ExtractExecutableTask.createSharedExtractTask(
+                            project,
+                            "extractConjure" + StringUtils.capitalize(subprojectName),
+                            matchingGeneratorDeps,
+                            new File(subproject.getBuildDir(), "generator"),
+                            String.format("conjure-%s", subprojectName));
 
             TaskProvider<ConjureLocalGenerateGenericTask> conjureLocalGenerateTask = project.getTasks()
                     .register(
@@ -183,7 +223,7 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
                                 task.setDescription(String.format(
                                         "Generates %s files from remote Conjure definitions.", subprojectName));
                                 task.setGroup(ConjurePlugin.TASK_GROUP);
-                                task.setSource(conjureIrConfiguration);
+                                task.setSource(conjureIrFiles);
                                 task.getExecutablePath()
                                         .set(extractConjureGeneratorTask.flatMap(ExtractExecutableTask::getExecutable));
                                 task.setOptions(() -> conjureExtension.getGenericOptions(subprojectName));
@@ -197,7 +237,7 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
     private void setupConjurePython(
             Project project,
             Supplier<GeneratorOptions> optionsSupplier,
-            Configuration conjureIrConfiguration,
+            FileCollection conjureIrFiles,
             TaskProvider<Task> generateConjure) {
         Project subproj = project.findProject(PYTHON_PROJECT_NAME);
         if (subproj == null) {
@@ -210,7 +250,7 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
                 .register("generatePython", ConjureLocalGenerateTask.class, task -> {
                     task.setDescription("Generates Python files from remote Conjure definitions.");
                     task.setGroup(ConjurePlugin.TASK_GROUP);
-                    task.setSource(conjureIrConfiguration);
+                    task.setSource(conjureIrFiles);
                     task.getExecutablePath()
                             .set(extractConjurePythonTask.flatMap(ExtractExecutableTask::getExecutable));
                     task.getOutputDirectory().set(subproj.file("python"));
@@ -223,7 +263,7 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
     private void setupConjureTypeScript(
             Project project,
             Supplier<GeneratorOptions> optionsSupplier,
-            Configuration conjureIrConfiguration,
+            FileCollection conjureIrFiles,
             TaskProvider<Task> generateConjure) {
         Project subproj = project.findProject(TYPESCRIPT_PROJECT_NAME);
         if (subproj == null) {
@@ -238,7 +278,7 @@ public final class ConjureLocalPlugin implements Plugin<Project> {
                 .register("generateTypeScript", ConjureLocalGenerateTask.class, task -> {
                     task.setDescription("Generate Typescript bindings from remote Conjure definitions.");
                     task.setGroup(ConjurePlugin.TASK_GROUP);
-                    task.setSource(conjureIrConfiguration);
+                    task.setSource(conjureIrFiles);
                     task.getExecutablePath()
                             .set(extractConjureTypeScriptTask.flatMap(ExtractExecutableTask::getExecutable));
                     task.setOptions(() -> optionsSupplier.get().addFlag("rawSource"));
@@ -223,6 +223,12 @@ public final class ConjurePlugin implements Plugin<Project> {
                                 .set(subproj.getLayout()
                                         .getBuildDirectory()
                                         .dir("generated/sources/conjure-" + projectSuffix + "/java/main"));
+                        task.getSelectiveRegeneration()
+                                .set(parentProject
+                                        .getProviders()
+                                        .gradleProperty(ConjureGeneratorTask.SELECTIVE_REGENERATION_PROPERTY)
+                                        .map(Boolean::parseBoolean)
+                                        .orElse(false));
                         task.setSource(compileIrTask);
                         task.dependsOn(extractJavaTask, compileIrTask);
                     });
@@ -546,12 +552,13 @@ public final class ConjurePlugin implements Plugin<Project> {
             FileCollection matchingGeneratorDeps = conjureGeneratorsConfiguration.fileCollection(
                     dep -> dep.getName().equals(CONJURE_GENERATOR_DEP_PREFIX + conjureLanguage));
 
-            TaskProvider<ExtractExecutableTask> extractConjureGeneratorTask = ExtractExecutableTask.createExtractTask(
-                    project,
-                    "extractConjure" + StringUtils.capitalize(conjureLanguage),
-                    matchingGeneratorDeps,
-                    new File(subproject.getBuildDir(), "generator"),
-                    String.format("conjure-%s", conjureLanguage));
+            TaskProvider<ExtractExecutableTask> extractConjureGeneratorTask =
+                    ExtractExecutableTask.createSharedExtractTask(
+                            project,
+                            "extractConjure" + StringUtils.capitalize(conjureLanguage),
+                            matchingGeneratorDeps,
+                            new File(subproject.getBuildDir(), "generator"),
+                            String.format("conjure-%s", conjureLanguage));
 
             String taskName = "compileConjure" + StringUtils.capitalize(conjureLanguage);
             TaskProvider<ConjureGeneratorTask> conjureLocalGenerateTask = project.getTasks()
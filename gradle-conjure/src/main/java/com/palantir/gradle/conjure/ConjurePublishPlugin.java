@@ -34,18 +34,40 @@ public final class ConjurePublishPlugin implements Plugin<Project> {
         project.getPluginManager().apply(ConjurePlugin.class);
 
         TaskProvider<CompileIrTask> compileIr = getCompileIrTask(project);
+        TaskProvider<GenerateIrMetadataTask> generateIrMetadata = project.getTasks()
+                .register("generateIrMetadata", GenerateIrMetadataTask.class, task -> {
+                    task.getIrFile().set(compileIr.flatMap(CompileIrTask::getOutputIrFile));
+                    task.getOutputFile()
+                            .set(project.getLayout()
+                                    .getBuildDirectory()
+                                    .file("conjure-ir/" + project.getName() + "-" + IrMetadata.CLASSIFIER + "."
+                                            + IrMetadata.EXTENSION));
+                });
 
         // Configure publishing
         project.getExtensions().configure(PublishingExtension.class, publishing -> {
             publishing.publications(publications -> {
-                publications.create(
-                        "conjure",
-                        MavenPublication.class,
-                        mavenPublication -> mavenPublication.artifact(
-                                compileIr.flatMap(CompileIrTask::getOutputIrFile), mavenArtifact -> {
-                                    mavenArtifact.builtBy(compileIr);
-                                    mavenArtifact.setExtension("conjure.json");
-                                }));
+                publications.create("conjure", MavenPublication.class, mavenPublication -> {
+                    mavenPublication.artifact(compileIr.flatMap(CompileIrTask::getOutputIrFile), mavenArtifact -> {
+                        mavenArtifact.builtBy(compileIr);
+                        mavenArtifact.setExtension("conjure.json");
+                    });
+                    mavenPublication.artifact(
+                            generateIrMetadata.flatMap(GenerateIrMetadataTask::getOutputFile), mavenArtifact -> {
+                                mavenArtifact.builtBy(generateIrMetadata);
+                                mavenArtifact.setClassifier(IrMetadata.CLASSIFIER);
+                                mavenArtifact.setExtension(IrMetadata.EXTENSION);
+                            });
+                    if (CompressedIr.isEnabled(project)) {
+                        TaskProvider<CompressIrTask> compressIr =
+                                project.getTasks().named(ConjureBasePlugin.COMPRESS_IR_TASK, CompressIrTask.class);
+                        mavenPublication.artifact(
+                                compressIr.flatMap(CompressIrTask::getOutputFile), mavenArtifact -> {
+                                    mavenArtifact.builtBy(compressIr);
+                                    mavenArtifact.setExtension(CompressedIr.EXTENSION);
+                                });
+                    }
+                });
             });
         });
     }
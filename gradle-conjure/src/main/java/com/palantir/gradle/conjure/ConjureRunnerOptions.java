@@ -0,0 +1,42 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Optional;
+import org.immutables.value.Value;
+
+/** Settings shared by every runner, derived from Gradle properties. */
+@Value.Immutable
+interface ConjureRunnerOptions {
+
+    /** Where generator main classes are cached once {@link GradleExecStubs} have been substituted in. */
+    File redefinedClassCache();
+
+    /** Where generator distributions are extracted to be shared between projects, see {@link ExtractionCache}. */
+    File extractionCache();
+
+    /** Whether external generators should be kept running and reused via {@link ExternalGeneratorWorkers}. */
+    @Value.Default
+    default boolean externalWorkers() {
+        return false;
+    }
+
+    /** How long a single invocation may run for before it is cancelled. */
+    Optional<Duration> timeout();
+}
@@ -18,15 +18,18 @@ package com.palantir.gradle.conjure;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
 import com.palantir.gradle.conjure.ConjureRunnerResource.Params;
 import com.palantir.gradle.conjure.ReverseEngineerJavaStartScript.StartScriptInfo;
-import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
 import java.net.URLClassLoader;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import net.bytebuddy.ByteBuddy;
@@ -34,59 +37,116 @@ import net.bytebuddy.ClassFileVersion;
 import net.bytebuddy.asm.AsmVisitorWrapper.ForDeclaredMethods;
 import net.bytebuddy.asm.MemberSubstitution;
 import net.bytebuddy.dynamic.ClassFileLocator;
-import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
 import net.bytebuddy.matcher.ElementMatchers;
 import net.bytebuddy.pool.TypePool;
-import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.services.BuildService;
 import org.gradle.api.services.BuildServiceParameters;
-import org.gradle.process.ExecResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public abstract class ConjureRunnerResource implements BuildService<Params>, Closeable {
 
     private static final Logger log = LoggerFactory.getLogger(ConjureRunnerResource.class);
+    private static final String REDEFINED_SUFFIX = "RedefinedForGradleConjure";
+
+    /** How much of a generator's output is kept to explain failures, the rest is only logged. */
+    private static final int OUTPUT_TAIL_BYTES = 64 * 1024;
 
     public interface Params extends BuildServiceParameters {
 
         RegularFileProperty getExecutable();
+
+        DirectoryProperty getRedefinedClassCache();
+
+        DirectoryProperty getExtractionCache();
+
+        Property<Boolean> getExternalWorkers();
+
+        Property<Duration> getTimeout();
     }
 
-    private final ConjureRunner delegate;
+    /** Guarded by this. */
+    private ConjureRunner delegate;
 
     public ConjureRunnerResource() throws IOException {
-        this.delegate =
-                createNewRunner(getParameters().getExecutable().getAsFile().get());
+        this.delegate = createRunner();
     }
 
-    final void invoke(Project project, String failedTo, List<String> unloggedArgs, List<String> loggedArgs) {
-        delegate.invoke(project, failedTo, unloggedArgs, loggedArgs);
+    private ConjureRunner createRunner() throws IOException {
+        return createNewRunner(
+                getParameters().getExecutable().getAsFile().get(),
+                ImmutableConjureRunnerOptions.builder()
+                        .redefinedClassCache(
+                                getParameters().getRedefinedClassCache().getAsFile().get())
+                        .extractionCache(
+                                getParameters().getExtractionCache().getAsFile().get())
+                        .externalWorkers(getParameters().getExternalWorkers().get())
+                        .timeout(Optional.ofNullable(getParameters().getTimeout().getOrNull()))
+                        .build());
+    }
+
+    /** The runner, replaced by a new one once an invocation of it has been abandoned. */
+    final synchronized ConjureRunner getRunner() {
+        if (delegate.isPoisoned()) {
+            try {
+                delegate.close();
+                delegate = createRunner();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to replace abandoned conjure runner", e);
+            }
+        }
+        return delegate;
     }
 
     @Override
-    public final void close() throws IOException {
+    public final synchronized void close() throws IOException {
         delegate.close();
     }
 
     interface ConjureRunner extends Closeable {
 
-        void invoke(Project project, String failedTo, List<String> unloggedArgs, List<String> loggedArgs);
+        /** Runs the generator, logging to {@code logger} and with {@code workingDir} as its working directory. */
+        void invoke(
+                org.gradle.api.logging.Logger logger,
+                File workingDir,
+                String failedTo,
+                List<String> unloggedArgs,
+                List<String> loggedArgs);
+
+        /** Whether invocations share the Gradle daemon's heap. */
+        default boolean runsInProcess() {
+            return false;
+        }
+
+        /**
+         * Whether an invocation timed out or was cancelled while it shared the Gradle daemon, so it may still be running
+         * or have left the generator's static state broken, and the runner must not be used again.
+         */
+        default boolean isPoisoned() {
+            return false;
+        }
     }
 
-    static ConjureRunner createNewRunner(File executable) throws IOException {
-        Optional<StartScriptInfo> maybeJava = ReverseEngineerJavaStartScript.maybeParseStartScript(executable.toPath());
+    static ConjureRunner createNewRunner(File executable, ConjureRunnerOptions options) throws IOException {
+        Optional<File> archive = ArchiveBackedDistribution.archive(executable);
+        Optional<StartScriptInfo> maybeJava =
+                ReverseEngineerJavaStartScript.maybeParseStartScript(executable.toPath(), !archive.isPresent());
         if (maybeJava.isPresent()) {
             ReverseEngineerJavaStartScript.StartScriptInfo info = maybeJava.get();
             boolean classLoaderMustBeClosed = true;
-            URLClassLoader classLoader =
-                    new ChildFirstUrlClassLoader(info.classpathUrls(), ConjureRunnerResource.class.getClassLoader());
+            ClassLoader parent = ConjureRunnerResource.class.getClassLoader();
+            ChildFirstUrlClassLoader classLoader = archive.isPresent()
+                    ? ArchiveBackedDistribution.classLoader(archive.get(), executable, info, parent)
+                    : new ChildFirstUrlClassLoader(info.classpathUrls(), parent);
             try {
-                Optional<Method> mainMethod = getMainMethod(classLoader, info.mainClass());
+                Optional<Method> mainMethod =
+                        getMainMethod(classLoader, info.mainClass(), options.redefinedClassCache());
                 if (mainMethod.isPresent()) {
                     classLoaderMustBeClosed = false;
-                    return new InProcessConjureRunner(executable, mainMethod.get(), classLoader);
+                    return new InProcessConjureRunner(executable, mainMethod.get(), classLoader, options.timeout());
                 }
             } finally {
                 if (classLoaderMustBeClosed) {
@@ -94,71 +154,175 @@ public abstract class ConjureRunnerResource implements BuildService<Params>, Clo
                 }
             }
         }
-        return new ExternalProcessConjureRunner(executable);
+        return createExternalRunner(executable, options);
     }
 
-    private static Optional<Method> getMainMethod(URLClassLoader classLoader, String mainClassName) {
-        try {
-            ClassFileLocator locator = new ClassFileLocator.ForUrl(classLoader.getURLs());
-            TypePool typePool = TypePool.ClassLoading.of(classLoader);
-            Class<?> mainClass = new ByteBuddy(ClassFileVersion.ofThisVm(ClassFileVersion.JAVA_V8))
-                    .redefine(typePool.describe(mainClassName).resolve(), locator)
-                    .name(mainClassName + "RedefinedForGradleConjure")
-                    .visit(new ForDeclaredMethods()
-                            .invokable(
-                                    ElementMatchers.any(),
-                                    MemberSubstitution.relaxed()
-                                            .method(ElementMatchers.is(System.class.getMethod("exit", int.class)))
-                                            .replaceWith(GradleExecStubs.getStubMethod())))
-                    .make(typePool)
-                    .load(classLoader, ClassLoadingStrategy.Default.INJECTION)
-                    .getLoaded();
+    /** Creates a runner which never runs the generator in the Gradle daemon, even if it is a java generator. */
+    static ConjureRunner createExternalRunner(File executable, ConjureRunnerOptions options) {
+        File extracted = ArchiveBackedDistribution.fullyExtracted(executable, options.extractionCache());
+        return new ExternalProcessConjureRunner(
+                extracted,
+                options.timeout(),
+                options.externalWorkers()
+                        ? Optional.of(new ExternalGeneratorWorkers(extracted, options.timeout()))
+                        : Optional.empty());
+    }
+
+    private static Optional<Method> getMainMethod(
+            ChildFirstUrlClassLoader classLoader, String mainClassName, File redefinedClassCache) {
+        // Read through the class loader, its jars may only exist in memory
+        byte[] original;
+        try (InputStream stream = classLoader.getResourceAsStream(mainClassName.replace('.', '/') + ".class")) {
+            if (stream == null) {
+                log.warn("Failed to locate main class {}", mainClassName);
+                return Optional.empty();
+            }
+            original = ByteStreams.toByteArray(stream);
+        } catch (IOException e) {
+            log.warn("Failed to read main class {}", mainClassName, e);
+            return Optional.empty();
+        }
+        try (ClassFileLocator locator = ClassFileLocator.Simple.of(mainClassName, original)) {
+            Method exit = System.class.getMethod("exit", int.class);
+            byte[] redefined = RedefinedClassCache.getOrRedefine(
+                    redefinedClassCache, original, () -> redefine(classLoader, locator, mainClassName, exit));
+            Class<?> mainClass = classLoader.defineRewrittenClass(mainClassName + REDEFINED_SUFFIX, redefined);
 
             return Optional.of(mainClass.getMethod("main", String[].class));
-        } catch (ReflectiveOperationException e) {
+        } catch (ReflectiveOperationException | IOException e) {
             log.warn("Failed too get main method {}", mainClassName, e);
             return Optional.empty();
         }
     }
 
+    private static byte[] redefine(
+            ClassLoader classLoader, ClassFileLocator locator, String mainClassName, Method exit) {
+        TypePool typePool = TypePool.ClassLoading.of(classLoader);
+        return new ByteBuddy(ClassFileVersion.ofThisVm(ClassFileVersion.JAVA_V8))
+                .redefine(typePool.describe(mainClassName).resolve(), locator)
+                .name(mainClassName + REDEFINED_SUFFIX)
+                .visit(new ForDeclaredMethods()
+                        .invokable(
+                                ElementMatchers.any(),
+                                MemberSubstitution.relaxed()
+                                        .method(ElementMatchers.is(exit))
+                                        .replaceWith(GradleExecStubs.getStubMethod())))
+                .make(typePool)
+                .getBytes();
+    }
+
     private static final class ExternalProcessConjureRunner implements ConjureRunner {
 
         private final File executable;
+        private final Optional<Duration> timeout;
+        private final Optional<ExternalGeneratorWorkers> workers;
 
-        ExternalProcessConjureRunner(File executable) {
+        ExternalProcessConjureRunner(
+                File executable, Optional<Duration> timeout, Optional<ExternalGeneratorWorkers> workers) {
             this.executable = executable;
+            this.timeout = timeout;
+            this.workers = workers;
         }
 
         @Override
         public void close() {
-            // nop
+            workers.ifPresent(ExternalGeneratorWorkers::close);
         }
 
         @Override
-        public void invoke(Project project, String failedTo, List<String> unloggedArgs, List<String> loggedArgs) {
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-
-            List<String> combinedArgs = ImmutableList.<String>builder()
-                    .add(executable.getAbsolutePath())
+        public void invoke(
+                org.gradle.api.logging.Logger logger,
+                File workingDir,
+                String failedTo,
+                List<String> unloggedArgs,
+                List<String> loggedArgs) {
+            List<String> args = ImmutableList.<String>builder()
                     .addAll(unloggedArgs)
                     .addAll(loggedArgs)
                     .build();
+            List<String> combinedArgs = ImmutableList.<String>builder()
+                    .add(executable.getAbsolutePath())
+                    .addAll(args)
+                    .build();
+
+            TailCapturingOutputStream output = new TailCapturingOutputStream(
+                    OUTPUT_TAIL_BYTES, line -> logger.info("{}: {}", executable.getName(), line));
+            // Warnings and errors have to stay visible, rather than drowning in the info logging of regular output
+            OutputStream errors = output.otherStream(line -> logger.warn("{}: {}", executable.getName(), line));
+
+            if (workers.isPresent()) {
+                Optional<Integer> workerExitValue = invokeWorker(failedTo, workingDir, args, output, errors);
+                if (workerExitValue.isPresent()) {
+                    logger.info("Ran on worker with args: {}", loggedArgs);
+                    output.close();
+                    checkExitValue(failedTo, combinedArgs, workerExitValue.get(), output.tail());
+                    return;
+                }
+            }
+
+            logger.info("Running with args: {}", loggedArgs);
+            Process process = start(workingDir, combinedArgs);
+            int exitValue = CancellableInvocation.run(
+                    failedTo,
+                    executable.getName(),
+                    timeout,
+                    () -> {
+                        Thread stderrPump = pump(process.getErrorStream(), errors);
+                        process.getInputStream().transferTo(output);
+                        int status = process.waitFor();
+                        stderrPump.join();
+                        return status;
+                    },
+                    () -> CancellableInvocation.destroyProcessTree(process));
+            output.close();
+
+            checkExitValue(failedTo, combinedArgs, exitValue, output.tail());
+        }
+
+        private Process start(File workingDir, List<String> combinedArgs) {
+            try {
+                Process process = new ProcessBuilder(combinedArgs)
+                        .directory(workingDir)
+                        .start();
+                // Generators don't read stdin, closing it stops any that try from blocking forever
+                process.getOutputStream().close();
+                return process;
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to start " + executable, e);
+            }
+        }
+
+        private Thread pump(InputStream stream, OutputStream sink) {
+            Thread thread = new Thread(
+                    () -> {
+                        try (InputStream source = stream) {
+                            source.transferTo(sink);
+                        } catch (IOException e) {
+                            log.debug("Failed to read stderr of {}", executable.getName(), e);
+                        }
+                    },
+                    "conjure-stderr-" + executable.getName());
+            thread.setDaemon(true);
+            thread.start();
+            return thread;
+        }
 
-            ExecResult execResult = project.exec(execSpec -> {
-                project.getLogger().info("Running with args: {}", loggedArgs);
-                execSpec.commandLine(combinedArgs);
-                execSpec.setIgnoreExitValue(true);
-                execSpec.setStandardOutput(output);
-                execSpec.setErrorOutput(output);
-            });
+        private Optional<Integer> invokeWorker(
+                String failedTo, File workingDir, List<String> args, OutputStream output, OutputStream errors) {
+            try {
+                return workers.get().invoke(failedTo, workingDir, args, output, errors);
+            } catch (IOException e) {
+                throw new RuntimeException("Worker for " + executable.getName() + " failed", e);
+            }
+        }
 
-            int exitValue = execResult.getExitValue();
-            log.debug("Executable {} completed with status {} output:\n{}", executable.getName(), exitValue, output);
+        private void checkExitValue(String failedTo, List<String> combinedArgs, int exitValue, String output) {
+            log.debug("Executable {} completed with status {}", executable.getName(), exitValue);
 
             if (exitValue != 0) {
                 throw new RuntimeException(String.format(
                         "Failed to %s. The command '%s' failed with exit code %d. Output:\n%s",
-                        failedTo, combinedArgs, exitValue, output.toString(StandardCharsets.UTF_8)));
+                        failedTo, combinedArgs, exitValue, output));
             }
         }
     }
@@ -170,21 +334,59 @@ public abstract class ConjureRunnerResource implements BuildService<Params>, Clo
         private final File executable;
         private final Method mainMethod;
         private final URLClassLoader classLoader;
+        private final Optional<Duration> timeout;
+        private volatile boolean poisoned;
 
-        InProcessConjureRunner(File executable, Method mainMethod, URLClassLoader classLoader) {
+        InProcessConjureRunner(
+                File executable, Method mainMethod, URLClassLoader classLoader, Optional<Duration> timeout) {
             this.executable = executable;
             this.mainMethod = mainMethod;
             this.classLoader = classLoader;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public boolean runsInProcess() {
+            return true;
         }
 
         @Override
-        public void invoke(Project project, String failedTo, List<String> unloggedArgs, List<String> loggedArgs) {
-            project.getLogger().info("Running in-process java with args: {}", loggedArgs);
+        public boolean isPoisoned() {
+            return poisoned;
+        }
+
+        @Override
+        public void invoke(
+                org.gradle.api.logging.Logger logger,
+                File _workingDir,
+                String failedTo,
+                List<String> unloggedArgs,
+                List<String> loggedArgs) {
+            logger.info("Running in-process java with args: {}", loggedArgs);
             List<String> combinedArgs = ImmutableList.<String>builder()
                     .addAll(unloggedArgs)
                     .addAll(loggedArgs)
                     .build();
 
+            // In-process generators used to print straight to the console, which is kept for their regular output
+            TailCapturingOutputStream output = new TailCapturingOutputStream(
+                    OUTPUT_TAIL_BYTES, line -> logger.quiet("{}: {}", executable.getName(), line));
+            OutputStream errors = output.otherStream(line -> logger.warn("{}: {}", executable.getName(), line));
+            // A dedicated thread can be interrupted on timeout or cancellation without disturbing the Gradle worker
+            CancellableInvocation.run(
+                    failedTo,
+                    executable.getName(),
+                    timeout,
+                    () -> {
+                        invokeMain(failedTo, combinedArgs, output, errors);
+                        return null;
+                    },
+                    () -> poisoned = true);
+        }
+
+        private void invokeMain(
+                String failedTo, List<String> combinedArgs, TailCapturingOutputStream output, OutputStream errors) {
+            GradleExecStubs.captureOutput(output, errors);
             try {
                 String[] args = combinedArgs.toArray(new String[] {});
                 mainMethod.invoke(null, new Object[] {args});
@@ -195,14 +397,24 @@ public abstract class ConjureRunnerResource implements BuildService<Params>, Clo
                     if (exitStatus != 0) {
                         // the error message from a generator attempting to call exit 1 looks pretty gross
                         throw new RuntimeException(String.format(
-                                "Failed to %s. The command '%s' with args %s failed with exit code %d. Output above.",
-                                failedTo, executable.getName(), combinedArgs, exitStatus));
+                                "Failed to %s. The command '%s' with args %s failed with exit code %d. Output:\n%s",
+                                failedTo,
+                                executable.getName(),
+                                combinedArgs,
+                                exitStatus,
+                                output.tail()));
                     }
                     // Exit status zero, we're good to go!
                 } else {
                     throw new RuntimeException(
-                            String.format("Failed to %s. The command '%s' failed.", failedTo, combinedArgs), t);
+                            String.format(
+                                    "Failed to %s. The command '%s' failed. Output:\n%s",
+                                    failedTo, combinedArgs, output.tail()),
+                            t);
                 }
+            } finally {
+                GradleExecStubs.stopCapturingOutput();
+                    output.close();
             }
         }
 
@@ -0,0 +1,277 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Long-lived generator processes which serve many generate requests, rather than starting a process per IR file.
+ * Generators opt in by speaking the following protocol over stdin/stdout when started with {@value #WORKER_FLAG} as
+ * their only argument. Integers are 4 byte big-endian, and strings are an integer byte length followed by UTF-8.
+ *
+ * <ol>
+ *   <li>On startup the worker writes the magic number {@code 0x434e4a57} ("CNJW") then the protocol version, 1.
+ *   <li>Each request is the number of arguments followed by the arguments, exactly as they would be passed on the
+ *       command line.
+ *   <li>Each response is the exit code the generator would have exited with, followed by its combined output.
+ * </ol>
+ *
+ * Workers should exit once stdin is closed. Anything they write to stderr is attributed to the request in progress, if
+ * any. Workers are started in the working directory of the invocation, so each directory gets its own, and at most
+ * {@link #MAX_IDLE_WORKERS} are kept around between invocations. A generator which does not complete the handshake is
+ * invoked as a separate process per call from then on, as is a single invocation whose worker dies.
+ */
+final class ExternalGeneratorWorkers implements Closeable {
+
+    static final String WORKER_FLAG = "--gradle-conjure-worker";
+
+    private static final Logger log = LoggerFactory.getLogger(ExternalGeneratorWorkers.class);
+    private static final int MAGIC = 0x434e4a57;
+    private static final int PROTOCOL_VERSION = 1;
+    private static final long HANDSHAKE_TIMEOUT_SECONDS = 10;
+
+    /** Each worker is a process, usually a JVM, so only as many are kept as a build is likely to use concurrently. */
+    static final int MAX_IDLE_WORKERS = 4;
+
+    private final File executable;
+    private final Optional<Duration> timeout;
+    private final int maxIdleWorkers;
+    private final ConcurrentMap<File, BlockingDeque<Worker>> idle = new ConcurrentHashMap<>();
+    private final Semaphore idleSlots;
+    private final Set<Worker> running = ConcurrentHashMap.newKeySet();
+    private final ExecutorService handshakes = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("conjure-worker-handshake-%d")
+            .setDaemon(true)
+            .build());
+
+    /**
+     * Set once the generator failed the handshake. Only remembered for as long as this runner is cached, as generators
+     * without worker support usually reject the unknown flag and exit straight away, so finding out again is cheap.
+     */
+    private volatile boolean unsupported;
+
+    private volatile boolean closed;
+
+    ExternalGeneratorWorkers(File executable, Optional<Duration> timeout) {
+        this(executable, timeout, MAX_IDLE_WORKERS);
+    }
+
+    @VisibleForTesting
+    ExternalGeneratorWorkers(File executable, Optional<Duration> timeout, int maxIdleWorkers) {
+        this.executable = executable;
+        this.timeout = timeout;
+        this.maxIdleWorkers = maxIdleWorkers;
+        this.idleSlots = new Semaphore(maxIdleWorkers);
+    }
+
+    /**
+     * Runs the generator with {@code args} on an idle worker, streaming its output to {@code output} and anything it
+     * writes to stderr meanwhile to {@code errors}, and returns its exit code. Returns empty if the protocol isn't
+     * supported or the worker died, in which case the invocation should be retried as a separate process.
+     */
+    Optional<Integer> invoke(
+            String failedTo, File workingDir, List<String> args, OutputStream output, OutputStream errors)
+            throws IOException {
+        if (unsupported) {
+            return Optional.empty();
+        }
+        BlockingDeque<Worker> idleInDir = idle.computeIfAbsent(workingDir, _dir -> new LinkedBlockingDeque<>());
+        Worker worker = idleInDir.pollFirst();
+        if (worker != null) {
+            idleSlots.release();
+        } else {
+            Optional<Worker> started = start(workingDir);
+            if (!started.isPresent()) {
+                unsupported = true;
+                return Optional.empty();
+            }
+            worker = started.get();
+        }
+
+        Optional<Integer> exitCode = Optional.empty();
+        try {
+            Worker current = worker;
+            exitCode = CancellableInvocation.run(
+                    failedTo,
+                    executable.getName(),
+                    timeout,
+                    () -> current.invoke(args, output, errors),
+                    current::destroy);
+            if (!exitCode.isPresent()) {
+                log.warn("Worker {} exited mid-request, running it as a separate process", executable.getName());
+            }
+            return exitCode;
+        } finally {
+            if (exitCode.isPresent() && !closed && idleSlots.tryAcquire()) {
+                idleInDir.addFirst(worker);
+            } else {
+                worker.destroy();
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int idleWorkers() {
+        return maxIdleWorkers - idleSlots.availablePermits();
+    }
+
+    private Optional<Worker> start(File workingDir) throws IOException {
+        Process process = new ProcessBuilder(executable.getAbsolutePath(), WORKER_FLAG)
+                .directory(workingDir)
+                .start();
+        Worker worker = new Worker(process);
+        if (worker.handshake(handshakes)) {
+            log.info("Started {} as a persistent worker in {}", executable.getName(), workingDir);
+            return Optional.of(worker);
+        }
+        worker.destroy();
+        log.info("{} does not support the worker protocol, running a process per invocation", executable.getName());
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        running.forEach(Worker::destroy);
+        handshakes.shutdownNow();
+    }
+
+    private final class Worker {
+        private final Process process;
+        private final DataOutputStream requests;
+        private final DataInputStream responses;
+        private final OutputStream unattributedErrors;
+        private volatile OutputStream errors;
+
+        Worker(Process process) {
+            this.process = process;
+            this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.responses = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            this.unattributedErrors =
+                    new TailCapturingOutputStream(1, line -> log.warn("{}: {}", executable.getName(), line));
+            this.errors = unattributedErrors;
+            running.add(this);
+
+            // An unread stderr pipe could block the worker, so it is always drained
+            Thread stderr = new Thread(this::forwardErrors, "conjure-worker-stderr-" + executable.getName());
+            stderr.setDaemon(true);
+            stderr.start();
+        }
+
+        /** Reads the handshake on {@code executor}, as a worker which never sends it would block the caller forever. */
+        boolean handshake(ExecutorService executor) {
+            Future<Boolean> handshake =
+                    executor.submit(() -> responses.readInt() == MAGIC && responses.readInt() == PROTOCOL_VERSION);
+            try {
+                return handshake.get(HANDSHAKE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+                log.debug("Worker handshake with {} failed", executable.getName(), e);
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        /** Returns empty if the worker died before responding. */
+        Optional<Integer> invoke(List<String> args, OutputStream output, OutputStream invocationErrors) {
+            errors = invocationErrors;
+            try {
+                requests.writeInt(args.size());
+                for (String arg : args) {
+                    byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+                    requests.writeInt(bytes.length);
+                    requests.write(bytes);
+                }
+                requests.flush();
+
+                int exitCode = responses.readInt();
+                int length = responses.readInt();
+                if (ByteStreams.copy(ByteStreams.limit(responses, length), output) != length) {
+                    throw new EOFException("Worker " + executable.getName() + " exited mid-response");
+                }
+                return Optional.of(exitCode);
+            } catch (IOException e) {
+                log.debug("Worker {} failed", executable.getName(), e);
+                return Optional.empty();
+            } finally {
+                errors = unattributedErrors;
+            }
+        }
+
+        private void forwardErrors() {
+            byte[] buffer = new byte[8192];
+            try (InputStream stderr = process.getErrorStream()) {
+                int read;
+                while ((read = stderr.read(buffer)) != -1) {
+                    errors.write(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                log.debug("Failed to read stderr of worker {}", executable.getName(), e);
+            } finally {
+                try {
+                    unattributedErrors.close();
+                } catch (IOException e) {
+                    log.debug("Failed to flush stderr of worker {}", executable.getName(), e);
+                }
+            }
+        }
+
+        /** Safe to call more than once. */
+        void destroy() {
+            running.remove(this);
+            try {
+                // Closing stdin asks the worker to exit, destroy() makes sure it does
+                requests.close();
+            } catch (IOException e) {
+                log.debug("Failed to close worker stdin", e);
+            }
+            CancellableInvocation.destroyProcessTree(process);
+        }
+    }
+}
@@ -17,106 +17,92 @@
 package com.palantir.gradle.conjure;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Suppliers;
 import com.google.common.collect.Iterables;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
-import java.util.Arrays;
-import java.util.HashSet;
+import java.nio.file.StandardCopyOption;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.function.Supplier;
-import org.gradle.api.Action;
-import org.gradle.api.GradleException;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
-import org.gradle.api.Task;
+import org.gradle.api.file.ArchiveOperations;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.FileCollection;
-import org.gradle.api.file.FileTree;
-import org.gradle.api.file.FileVisitDetails;
-import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.FileSystemLocation;
 import org.gradle.api.file.RegularFileProperty;
-import org.gradle.api.file.RelativePath;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
-import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.OutputFile;
-import org.gradle.api.tasks.Sync;
+import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.TaskProvider;
 
-public abstract class ExtractExecutableTask extends Sync {
-    private FileCollection archive;
+public abstract class ExtractExecutableTask extends DefaultTask {
+    /** Whether archives should be extracted once into Gradle user home and hardlinked into each output directory. */
+    static final String SHARED_EXTRACTION_CACHE_PROPERTY = "com.palantir.conjure.shared_extraction_cache";
 
-    public ExtractExecutableTask() {
-        // Memoize this because we are re-using it in the doLast action.
-        Supplier<File> tarFile = Suppliers.memoize(this::resolveTarFile);
+    /** Whether java generators should only have their start script extracted, see {@link #getExtractionFree()}. */
+    static final String EXTRACTION_FREE_PROPERTY = "com.palantir.conjure.extraction_free";
 
-        // Configure the spec lazily
-        from((Callable<FileTree>) () -> getProject().tarTree(tarFile.get())); // will get lazily resolved
-        eachFile(fcd -> fcd.setRelativePath(stripFirstName(fcd.getRelativePath())));
-        into(getOutputDirectory()); // will get lazily resolved
+    private FileCollection archive;
 
+    public ExtractExecutableTask() {
         getExecutable().convention(getOutputDirectory().file(getExecutableName().map(s -> String.format("bin/%s", s))));
-
-        doFirst(new Action<Task>() {
-            @Override
-            public void execute(Task _task) {
-                Set<String> rootDirectories = new HashSet<>();
-                getProject().tarTree(tarFile.get()).visit(new FileVisitor() {
-                    @Override
-                    public void visitDir(FileVisitDetails dirDetails) {
-                        // Note: If root dir contains only another dir (e.g. a/b), we won't get called with just that
-                        // root dir 'a', but with 'a/b' directly. Hence, we look at all dirs and extract their first
-                        // 'segment'.
-                        String[] segments = dirDetails.getRelativePath().getSegments();
-                        if (segments.length >= 1) {
-                            rootDirectories.add(segments[0]);
-                        }
-                    }
-
-                    @Override
-                    public void visitFile(FileVisitDetails _fileDetails) {}
-                });
-                if (rootDirectories.size() != 1) {
-                    throw new GradleException(String.format(
-                            "Expected exactly one root directory in tar '%s', aborting: %s",
-                            tarFile.get(), rootDirectories));
-                }
-            }
-        });
-
-        doLast(new Action<Task>() {
-            @Override
-            public void execute(Task _task) {
-                getLogger().info("Extracted into {}", getOutputDirectory());
-                // Ensure the executable exists
-                Preconditions.checkState(
-                        Files.exists(getExecutable().getAsFile().get().toPath()),
-                        "Couldn't find expected file after extracting archive %s: %s",
-                        tarFile.get(),
-                        getExecutable());
-            }
-        });
+        getUseSharedCache()
+                .convention(getProject()
+                        .getProviders()
+                        .gradleProperty(SHARED_EXTRACTION_CACHE_PROPERTY)
+                        .map(Boolean::parseBoolean)
+                        .orElse(false));
+        getExtractionFree()
+                .convention(getProject()
+                        .getProviders()
+                        .gradleProperty(EXTRACTION_FREE_PROPERTY)
+                        .map(Boolean::parseBoolean)
+                        .orElse(false));
     }
 
     public static TaskProvider<ExtractExecutableTask> createExtractTask(
             Project project, String taskName, FileCollection archive, File outputDir, String executableName) {
         return project.getTasks().register(taskName, ExtractExecutableTask.class, task -> {
-            task.setArchive(archive);
+            task.archive = archive;
+            task.getArchiveFile()
+                    .fileProvider(archive.getElements().map(files -> onlyArchive(files, executableName)));
             task.getOutputDirectory().set(outputDir);
             task.getExecutableName().set(executableName);
         });
     }
 
-    @InputFiles
+    /**
+     * Like {@link #createExtractTask}, except that the archive is always extracted through the {@link ExtractionCache}
+     * in Gradle user home, so every project resolving the same archive links the same extraction rather than unpacking
+     * it again. Used for generic generators, which every API project declares separately, possibly without a version.
+     */
+    static TaskProvider<ExtractExecutableTask> createSharedExtractTask(
+            Project project, String taskName, FileCollection archive, File outputDir, String executableName) {
+        TaskProvider<ExtractExecutableTask> task =
+                createExtractTask(project, taskName, archive, outputDir, executableName);
+        task.configure(t -> t.getUseSharedCache().set(true));
+        return task;
+    }
+
+    /** The configuration resolving to {@link #getArchiveFile()}. */
+    @Internal
     public final FileCollection getArchive() {
         return archive;
     }
 
-    final void setArchive(FileCollection archive) {
-        this.archive = archive;
-    }
+    /**
+     * The archive to extract. Its path is an input as well as its contents, as extraction-free distributions record
+     * where their classpath is read from.
+     */
+    @InputFile
+    public abstract RegularFileProperty getArchiveFile();
 
     @OutputDirectory
     public abstract DirectoryProperty getOutputDirectory();
@@ -132,18 +118,99 @@ public abstract class ExtractExecutableTask extends Sync {
     @OutputFile
     abstract RegularFileProperty getExecutable();
 
-    private File resolveTarFile() {
-        Set<File> resolvedFiles = archive.getFiles();
+    /**
+     * Whether to link the output directory to a shared extraction in Gradle user home rather than extracting the
+     * archive again. The output is identical either way.
+     */
+    @Input
+    public abstract Property<Boolean> getUseSharedCache();
+
+    /**
+     * Whether to only extract {@code bin/} for java generators, whose in-process runners then load the classpath
+     * straight out of the archive. The rest is extracted on demand if the generator has to run in a separate process.
+     * Other generators are always extracted in full.
+     */
+    @Input
+    public abstract Property<Boolean> getExtractionFree();
+
+    @Inject
+    protected abstract ArchiveOperations getArchiveOperations();
+
+    /** Streams the archive straight into the output directory, leaving files which haven't changed alone. */
+    @TaskAction
+    public final void extract() {
+        File archive = getArchiveFile().getAsFile().get();
+        File tarFile = decompressIfBzip2(archive);
+        File outputDir = getOutputDirectory().getAsFile().get();
+        // The decompressed copy of a bzip2 archive is only temporary, so can't back the classpath
+        if (getExtractionFree().get() && tarFile.equals(archive) && extractStartScriptOnly(tarFile, outputDir)) {
+            getLogger().info("Extracted start script into {}, classpath is read from {}", outputDir, tarFile);
+            return;
+        }
+        if (getUseSharedCache().get()) {
+            File cached = ExtractionCache.getOrExtract(
+                    ExtractionCache.directory(getProject()), tarFile, dir -> extractTo(tarFile, dir));
+            ExtractionCache.link(cached, outputDir);
+        } else {
+            extractTo(tarFile, outputDir);
+        }
+
+        getLogger().info("Extracted into {}", getOutputDirectory());
+        // Ensure the executable exists
+        Preconditions.checkState(
+                Files.exists(getExecutable().getAsFile().get().toPath()),
+                "Couldn't find expected file after extracting archive %s: %s",
+                tarFile,
+                getExecutable());
+    }
+
+    /** Returns false, having extracted {@code bin/}, if the executable turns out not to be a java start script. */
+    private boolean extractStartScriptOnly(File tarFile, File outputDir) {
+        try {
+            TarExtractor.extract(tarFile, outputDir, path -> path.startsWith("bin/"));
+            File executable = getExecutable().getAsFile().get();
+            Preconditions.checkState(
+                    executable.exists(),
+                    "Couldn't find expected file after extracting archive %s: %s",
+                    tarFile,
+                    getExecutable());
+            if (!ReverseEngineerJavaStartScript.maybeParseStartScript(executable.toPath(), false)
+                    .isPresent()) {
+                return false;
+            }
+            ArchiveBackedDistribution.writeMarker(outputDir, tarFile);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to extract " + tarFile, e);
+        }
+    }
+
+    /** {@link TarExtractor} only reads gzip itself, Gradle decompresses bzip2 archives for it. */
+    private File decompressIfBzip2(File archive) {
+        try {
+            if (!TarExtractor.isBzip2(archive)) {
+                return archive;
+            }
+            File tarFile = new File(getTemporaryDir(), archive.getName() + ".tar");
+            try (InputStream in = getArchiveOperations().bzip2(archive).read()) {
+                Files.copy(in, tarFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return tarFile;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decompress " + archive, e);
+        }
+    }
+
+    private static void extractTo(File tarFile, File dir) {
+        ExtractionCache.extract(tarFile, dir);
+    }
+
+    private static File onlyArchive(Set<FileSystemLocation> resolvedFiles, String executableName) {
         Preconditions.checkState(
                 resolvedFiles.size() == 1,
                 "Expected exactly one dependency for executable '%s', found %s",
-                getExecutableName(),
+                executableName,
                 resolvedFiles);
-        return Iterables.getOnlyElement(resolvedFiles);
-    }
-
-    private static RelativePath stripFirstName(RelativePath relativePath) {
-        String[] segments = relativePath.getSegments();
-        return new RelativePath(relativePath.isFile(), Arrays.copyOfRange(segments, 1, segments.length));
+        return Iterables.getOnlyElement(resolvedFiles).getAsFile();
     }
 }
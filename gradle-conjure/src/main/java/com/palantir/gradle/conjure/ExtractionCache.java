@@ -0,0 +1,272 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Striped;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileLock;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content addressed store of extracted generator distributions in Gradle user home, so that each distinct archive is
+ * only extracted once no matter how many projects or builds use it. Projects get hardlinks to the cached files, which
+ * are made read-only first so that writing to one project's copy can't corrupt every other build's. Where files can't
+ * be made read-only, e.g. on Windows, they are copied instead. Extractions no build used for
+ * {@link CacheCleanup#MAX_UNUSED} are deleted.
+ */
+final class ExtractionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtractionCache.class);
+
+    /** Records which archive a directory was extracted from, see {@link #sourceArchive(File)}. */
+    static final String SOURCE_MARKER_FILE_NAME = ".gradle-conjure-source";
+
+    private static final String COMPLETE_SUFFIX = ".complete";
+
+    /** Holds the start scripts of extraction-free distributions, see {@link #sharedExecutable}. */
+    private static final String START_SCRIPTS_DIRECTORY = "start-scripts";
+    private static final ImmutableSet<PosixFilePermission> WRITE_PERMISSIONS = ImmutableSet.of(
+            PosixFilePermission.OWNER_WRITE, PosixFilePermission.GROUP_WRITE, PosixFilePermission.OTHERS_WRITE);
+
+    /** File locks only exclude other processes, so threads in this daemon also need to be kept apart. */
+    private static final Striped<Lock> locks = Striped.lock(16);
+
+    static File directory(Project project) {
+        return project.getGradle()
+                .getGradleUserHomeDir()
+                .toPath()
+                .resolve("caches/gradle-conjure/extractions")
+                .toFile();
+    }
+
+    /**
+     * Returns the cached extraction of {@code archive}, calling {@code extractor} to populate an empty directory
+     * first if no build has extracted this archive yet.
+     */
+    static File getOrExtract(File cacheDirectory, File archive, Consumer<File> extractor) {
+        return getOrExtract(cacheDirectory, FileHasher.hash(archive).toString(), archive, extractor);
+    }
+
+    private static File getOrExtract(File cacheDirectory, String key, File archive, Consumer<File> extractor) {
+        Path cacheDir = cacheDirectory.toPath();
+        CacheCleanup.maybeCleanUp(cacheDir, COMPLETE_SUFFIX, ExtractionCache::deleteUnused);
+        Path extracted = cacheDir.resolve(key);
+        Path complete = cacheDir.resolve(key + COMPLETE_SUFFIX);
+        // The marker's modification time records when the extraction was last used
+        if (CacheCleanup.markUsed(complete)) {
+            return extracted.toFile();
+        }
+
+        Lock lock = locks.get(key);
+        lock.lock();
+        try {
+            Files.createDirectories(cacheDir);
+            try (FileChannel channel = FileChannel.open(
+                    cacheDir.resolve(key + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock fileLock = channel.lock();
+                try {
+                    // Another build may have finished extracting while we waited
+                    if (!Files.exists(complete)) {
+                        Path partial = cacheDir.resolve(key + ".partial");
+                        FileUtils.deleteDirectory(partial.toFile());
+                        FileUtils.deleteDirectory(extracted.toFile());
+                        extractor.accept(partial.toFile());
+                        Files.move(partial, extracted, StandardCopyOption.ATOMIC_MOVE);
+                        Files.createFile(complete);
+                        log.info("Extracted {} into {}", archive, extracted);
+                    }
+                } finally {
+                    fileLock.release();
+                }
+            }
+            return extracted.toFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to extract " + archive + " into " + cacheDir, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes an extraction nothing used since {@code cutoff}. The lock file is left behind, as deleting it could let
+     * another build lock a new one and extract concurrently with a build still holding the old one.
+     */
+    private static void deleteUnused(Path complete, Instant cutoff) throws IOException {
+        Path cacheDir = complete.getParent();
+        String fileName = complete.getFileName().toString();
+        String key = fileName.substring(0, fileName.length() - COMPLETE_SUFFIX.length());
+        Lock lock = locks.get(key);
+        lock.lock();
+        try (FileChannel channel = FileChannel.open(
+                cacheDir.resolve(key + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock fileLock = channel.lock();
+            try {
+                // Checked again now that no other build can be extracting it, one may have used it in the meantime
+                if (CacheCleanup.isUnusedSince(complete, cutoff)) {
+                    Files.delete(complete);
+                    FileUtils.deleteDirectory(cacheDir.resolve(key).toFile());
+                    FileUtils.deleteDirectory(cacheDir.resolve(key + ".partial").toFile());
+                }
+            } finally {
+                fileLock.release();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Extracts the whole of {@code archive} into {@code dir}, recording where it came from. */
+    static void extract(File archive, File dir) {
+        try {
+            TarExtractor.extract(archive, dir);
+            // The jars are on disk now, so they needn't be read from the archive any more
+            Files.deleteIfExists(dir.toPath().resolve(ArchiveBackedDistribution.MARKER_FILE_NAME));
+            Files.writeString(dir.toPath().resolve(SOURCE_MARKER_FILE_NAME), archive.getAbsolutePath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to extract " + archive, e);
+        }
+    }
+
+    /** The archive {@code appHome} was {@link #extract extracted} from, if it still exists. */
+    static Optional<File> sourceArchive(File appHome) {
+        Path marker = appHome.toPath().resolve(SOURCE_MARKER_FILE_NAME);
+        if (!Files.isRegularFile(marker)) {
+            return Optional.empty();
+        }
+        try {
+            File archive = new File(Files.readString(marker));
+            return archive.isFile() ? Optional.of(archive) : Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + marker, e);
+        }
+    }
+
+    /**
+     * The copy of {@code executable} in the cache which runners are created from. Every project which extracted the
+     * same archive into its own build directory gets the same file, so they can share a runner, and cleaning or
+     * re-extracting one of those build directories can't pull the distribution out from under a runner. Only the start
+     * scripts of extraction-free distributions are copied, their classpath is still read from the archive. Returns
+     * {@code executable} itself if it's not known which archive it came from.
+     */
+    static File sharedExecutable(File executable, File cacheDirectory) {
+        Path appHome = executable.toPath().toAbsolutePath().getParent().getParent();
+        String relativePath = appHome.relativize(executable.toPath().toAbsolutePath()).toString();
+        Optional<File> backingArchive = ArchiveBackedDistribution.archive(executable);
+        if (backingArchive.isPresent()) {
+            File archive = backingArchive.get();
+            // The marker records where the archive is, so copies for the same contents elsewhere are kept apart
+            String key = Hashing.sha256()
+                    .newHasher()
+                    .putString(archive.getAbsolutePath(), StandardCharsets.UTF_8)
+                    .putString(FileHasher.hash(archive).toString(), StandardCharsets.UTF_8)
+                    .hash()
+                    .toString();
+            File startScripts = getOrExtract(
+                    new File(cacheDirectory, START_SCRIPTS_DIRECTORY),
+                    key,
+                    archive,
+                    dir -> extractStartScripts(archive, dir));
+            return new File(startScripts, relativePath);
+        }
+        Optional<File> sourceArchive = sourceArchive(appHome.toFile());
+        if (sourceArchive.isPresent()) {
+            File archive = sourceArchive.get();
+            return new File(getOrExtract(cacheDirectory, archive, dir -> extract(archive, dir)), relativePath);
+        }
+        return executable;
+    }
+
+    private static void extractStartScripts(File archive, File dir) {
+        try {
+            TarExtractor.extract(archive, dir, path -> path.startsWith("bin/"));
+            ArchiveBackedDistribution.writeMarker(dir, archive);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to extract start scripts from " + archive, e);
+        }
+    }
+
+    /**
+     * Replaces the contents of {@code target} with hardlinks to the files in {@code cached}, copying any that can't be
+     * linked, e.g. because the cache lives on a different file system.
+     */
+    static void link(File cached, File target) {
+        Path source = cached.toPath();
+        Path destination = target.toPath();
+        try {
+            FileUtils.deleteDirectory(target);
+            try (Stream<Path> paths = Files.walk(source)) {
+                for (Path path : (Iterable<Path>) paths::iterator) {
+                    Path linked = destination.resolve(source.relativize(path).toString());
+                    if (Files.isDirectory(path)) {
+                        Files.createDirectories(linked);
+                    } else {
+                        linkOrCopy(path, linked);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to link " + cached + " into " + target, e);
+        }
+    }
+
+    private static void linkOrCopy(Path existing, Path link) throws IOException {
+        if (makeReadOnly(existing)) {
+            try {
+                Files.createLink(link, existing);
+                return;
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                // Copied below
+            }
+        }
+        Files.copy(existing, link, StandardCopyOption.COPY_ATTRIBUTES);
+    }
+
+    /** Returns false if {@code path} can't be made read-only, so mustn't be shared through hardlinks. */
+    private static boolean makeReadOnly(Path path) throws IOException {
+        if (!path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return false;
+        }
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(path);
+        if (permissions.removeAll(WRITE_PERMISSIONS)) {
+            Files.setPosixFilePermissions(path, permissions);
+        }
+        return true;
+    }
+
+    private ExtractionCache() {}
+}
@@ -0,0 +1,62 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Hashes generator executables, archives and IRs by their contents. Generator distributions are shared between
+ * projects through {@link ExtractionCache} rather than by hashing every project's copy of their jars, so the files
+ * hashed here are few and mostly live outside of build directories.
+ */
+final class FileHasher {
+
+    /**
+     * File hashes keyed by path, size and modification time, so each file is only read once per daemon unless it
+     * changes. Bounded, as every changed file adds an entry for the life of the daemon.
+     */
+    private static final Cache<String, HashCode> fileHashes =
+            CacheBuilder.newBuilder().maximumSize(10_000).build();
+
+    /** SHA-256 of the contents of {@code file}. */
+    static HashCode hash(File file) {
+        try {
+            return fileHashes.get(stamp(file), () -> Files.asByteSource(file).hash(Hashing.sha256()));
+        } catch (ExecutionException e) {
+            // Only ever an IOException, as that is all hashing throws
+            throw new UncheckedIOException("Failed to hash " + file, (IOException) e.getCause());
+        }
+    }
+
+    /**
+     * Identifies {@code file} by its path, size and modification time, which change whenever the file is rewritten,
+     * without reading it.
+     */
+    static String stamp(File file) {
+        return file.getAbsolutePath() + ':' + file.length() + ':' + file.lastModified();
+    }
+
+    private FileHasher() {}
+}
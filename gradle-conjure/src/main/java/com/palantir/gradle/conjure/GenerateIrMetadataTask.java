@@ -0,0 +1,59 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/** Writes the {@link IrMetadata} of an IR. */
+@CacheableTask
+public abstract class GenerateIrMetadataTask extends DefaultTask {
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getIrFile();
+
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+
+    @TaskAction
+    public final void generate() {
+        File irFile = getIrFile().getAsFile().get();
+        try {
+            GenerateConjureServiceDependenciesTask.jsonMapper
+                    .writerWithDefaultPrettyPrinter()
+                    .writeValue(
+                            getOutputFile().getAsFile().get(),
+                            IrMetadata.metadata(
+                                    GenerateConjureServiceDependenciesTask.jsonMapper.readTree(irFile),
+                                    Files.asByteSource(irFile).hash(Hashing.sha256())));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write metadata of " + irFile, e);
+        }
+    }
+}
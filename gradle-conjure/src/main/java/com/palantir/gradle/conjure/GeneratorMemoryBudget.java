@@ -0,0 +1,95 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.palantir.gradle.conjure.GeneratorMemoryBudget.Params;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Limits how much daemon heap concurrently running in-process generators may use, estimated from the size of their
+ * inputs. Invocations queue until enough of the budget is free, and invocations too big for the whole budget should be
+ * run in an external process instead. Invocations aren't declared as usages by tasks, so this uses its own weighted
+ * semaphore rather than {@code maxParallelUsages}.
+ */
+public abstract class GeneratorMemoryBudget implements BuildService<Params> {
+
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    public interface Params extends BuildServiceParameters {
+
+        Property<Integer> getBudgetMegabytes();
+
+        /** Estimated bytes of heap needed per byte of input. */
+        Property<Integer> getMemoryFactor();
+    }
+
+    private final Semaphore megabytes;
+
+    public GeneratorMemoryBudget() {
+        // Fair, so that large invocations aren't starved by a stream of small ones
+        this.megabytes = new Semaphore(getParameters().getBudgetMegabytes().get(), true);
+    }
+
+    /** Estimated megabytes of heap needed to generate from {@code inputs}, which may include directories. */
+    final int estimateMegabytes(Collection<File> inputs) {
+        long inputBytes = inputs.stream().mapToLong(GeneratorMemoryBudget::size).sum();
+        long estimate = inputBytes * getParameters().getMemoryFactor().get();
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (estimate + BYTES_PER_MEGABYTE - 1) / BYTES_PER_MEGABYTE));
+    }
+
+    final boolean fits(int estimateMegabytes) {
+        return estimateMegabytes <= getParameters().getBudgetMegabytes().get();
+    }
+
+    /** Runs {@code action} once {@code estimateMegabytes} of the budget is free, waiting if necessary. */
+    final void run(int estimateMegabytes, Runnable action) {
+        try {
+            megabytes.acquire(estimateMegabytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for generator memory budget", e);
+        }
+        try {
+            action.run();
+        } finally {
+            megabytes.release(estimateMegabytes);
+        }
+    }
+
+    private static long size(File file) {
+        if (!file.isDirectory()) {
+            return file.length();
+        }
+        try (Stream<Path> files = Files.walk(file.toPath())) {
+            return files.filter(Files::isRegularFile)
+                    .mapToLong(path -> path.toFile().length())
+                    .sum();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
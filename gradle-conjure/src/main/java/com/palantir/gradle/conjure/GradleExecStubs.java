@@ -16,12 +16,32 @@
 
 package com.palantir.gradle.conjure;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.annotations.DoNotCall;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
-/** Stubs used for System.exit method replacement. */
+/** Stubs used for System.exit method and System.out/System.err field replacement. */
 public final class GradleExecStubs {
 
+    /**
+     * Where the current thread's in-process generator output goes, if it is being captured. Inherited, so output of
+     * threads the generator starts is attributed to the invocation. Threads outliving it, such as pooled workers, find
+     * the capture closed and write to the original streams instead, as their output can't be attributed to any task.
+     */
+    private static final InheritableThreadLocal<Capture> outputCapture = new InheritableThreadLocal<>();
+
+    /** Number of threads currently capturing output. Guarded by the class lock, as are the streams below. */
+    private static int activeCaptures;
+
+    private static PrintStream originalOut;
+    private static PrintStream originalErr;
+    private static PrintStream dispatchingOut;
+    private static PrintStream dispatchingErr;
+
     @DoNotCall
     @SuppressWarnings("ThrowError")
     public static void exitStub(int status) {
@@ -29,8 +49,71 @@ public final class GradleExecStubs {
     }
 
     public static Method getStubMethod() {
+        return getMethod("exitStub", int.class);
+    }
+
+    /** Every stub substituted into generator main classes. */
+    static List<Method> getStubMethods() {
+        return ImmutableList.of(getStubMethod());
+    }
+
+    /**
+     * Sends stdout and stderr of generators invoked on the current thread to {@code out} and {@code err}, until
+     * {@link #stopCapturingOutput()} is called.
+     */
+    static void captureOutput(OutputStream out, OutputStream err) {
+        startDispatching();
+        outputCapture.set(new Capture(
+                new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8)));
+    }
+
+    static void stopCapturingOutput() {
+        Capture capture = outputCapture.get();
+        if (capture == null) {
+            return;
+        }
+        outputCapture.remove();
+        capture.close();
+        stopDispatching();
+    }
+
+    /**
+     * Generators print through all sorts of classes, such as their CLI framework or logging, so rather than rewriting
+     * each of them {@link System#out} and {@link System#err} are replaced by streams which write to the sink of the
+     * current thread, or to the original stream if there is none or it was closed. They are only replaced while some
+     * thread is capturing output.
+     */
+    private static synchronized void startDispatching() {
+        if (activeCaptures++ == 0) {
+            originalOut = System.out;
+            originalErr = System.err;
+            dispatchingOut = new DispatchingPrintStream(originalOut, false);
+            dispatchingErr = new DispatchingPrintStream(originalErr, true);
+            System.setOut(dispatchingOut);
+            System.setErr(dispatchingErr);
+        }
+    }
+
+    private static synchronized void stopDispatching() {
+        if (--activeCaptures == 0) {
+            // Leave alone any streams installed by someone else in the meantime
+            if (System.out == dispatchingOut) {
+                System.setOut(originalOut);
+            }
+            if (System.err == dispatchingErr) {
+                System.setErr(originalErr);
+            }
+            originalOut = null;
+            originalErr = null;
+            dispatchingOut = null;
+            dispatchingErr = null;
+        }
+    }
+
+    private static Method getMethod(String name, Class<?>... parameterTypes) {
         try {
-            return GradleExecStubs.class.getMethod("exitStub", int.class);
+            return GradleExecStubs.class.getMethod(name, parameterTypes);
         } catch (ReflectiveOperationException e) {
             throw new RuntimeException(e);
         }
@@ -38,6 +121,72 @@ public final class GradleExecStubs {
 
     private GradleExecStubs() {}
 
+    /** The sinks of one invocation, which threads it started may still write to after it has finished. */
+    private static final class Capture {
+        private final PrintStream out;
+        private final PrintStream err;
+
+        /** Guarded by this. */
+        private boolean closed;
+
+        Capture(PrintStream out, PrintStream err) {
+            this.out = out;
+            this.err = err;
+        }
+
+        /** Returns false, having written nothing, once the invocation has finished. */
+        synchronized boolean write(boolean error, byte[] bytes, int offset, int length) {
+            if (closed) {
+                return false;
+            }
+            (error ? err : out).write(bytes, offset, length);
+            return true;
+        }
+
+        synchronized void flush() {
+            if (!closed) {
+                out.flush();
+                err.flush();
+            }
+        }
+
+        synchronized void close() {
+            out.flush();
+            err.flush();
+            closed = true;
+        }
+    }
+
+    private static final class DispatchingPrintStream extends PrintStream {
+        DispatchingPrintStream(PrintStream original, boolean error) {
+            super(
+                    new OutputStream() {
+                        @Override
+                        public void write(int byteValue) {
+                            write(new byte[] {(byte) byteValue}, 0, 1);
+                        }
+
+                        @Override
+                        public void write(byte[] bytes, int offset, int length) {
+                            Capture capture = outputCapture.get();
+                            if (capture == null || !capture.write(error, bytes, offset, length)) {
+                                original.write(bytes, offset, length);
+                            }
+                        }
+
+                        @Override
+                        public void flush() {
+                            Capture capture = outputCapture.get();
+                            if (capture != null) {
+                                capture.flush();
+                            }
+                            original.flush();
+                        }
+                    },
+                    true);
+        }
+    }
+
     // It's not generally a good idea to implement Error, however in this case we
     // want to avoid all exception handling inside
     @SuppressWarnings("ExtendsErrorOrThrowable")
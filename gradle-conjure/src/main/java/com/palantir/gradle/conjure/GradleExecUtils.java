@@ -16,42 +16,281 @@
 
 package com.palantir.gradle.conjure;
 
+import com.google.common.hash.Hashing;
 import com.palantir.gradle.conjure.ConjureRunnerResource.Params;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 import org.gradle.api.Action;
 import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.services.BuildServiceSpec;
 import org.gradle.util.GradleVersion;
 
 final class GradleExecUtils {
+    /**
+     * Maximum number of runners a build keeps alive at once, see {@link RunnerCache}. Defaults to 0, which keeps one
+     * runner per generator.
+     */
+    static final String RUNNER_CACHE_SIZE_PROPERTY = "com.palantir.conjure.runner_cache_size";
+
+    /** Whether non-java generators should be started once and reused, see {@link ExternalGeneratorWorkers}. */
+    static final String EXTERNAL_WORKERS_PROPERTY = "com.palantir.conjure.external_generator_workers";
+
+    /**
+     * Maximum number of seconds a single generator invocation may take. Can be overridden for one generator by
+     * suffixing the property with its executable name, e.g. {@code generator_timeout_seconds.conjure-typescript}.
+     */
+    static final String TIMEOUT_SECONDS_PROPERTY = "com.palantir.conjure.generator_timeout_seconds";
+
+    /**
+     * Megabytes of daemon heap that concurrently running in-process generators may use, see
+     * {@link GeneratorMemoryBudget}. Unset by default, which doesn't limit them.
+     */
+    static final String MEMORY_BUDGET_PROPERTY = "com.palantir.conjure.in_process_memory_budget_mb";
+
+    /** Estimated bytes of heap an in-process generator needs per byte of input. */
+    static final String MEMORY_FACTOR_PROPERTY = "com.palantir.conjure.in_process_memory_factor";
+
+    private static final int DEFAULT_MEMORY_FACTOR = 30;
 
     static void exec(
             Project project, String failedTo, File executable, List<String> unloggedArgs, List<String> loggedArgs) {
-        if (gradleVersionHighEnough()) {
-            project.getGradle()
+        exec(project, failedTo, executable, unloggedArgs, loggedArgs, Collections.emptyList());
+    }
+
+    /**
+     * Runs {@code executable}, where {@code inputFiles} are the files or directories it reads, used to estimate how
+     * much memory the invocation needs.
+     */
+    static void exec(
+            Project project,
+            String failedTo,
+            File executable,
+            List<String> unloggedArgs,
+            List<String> loggedArgs,
+            Collection<File> inputFiles) {
+        prepare(project, executable).exec(failedTo, unloggedArgs, loggedArgs, inputFiles);
+    }
+
+    /**
+     * Resolves everything needed to run {@code executable} from {@code project}, so that the result can be used from
+     * threads other than the one executing the task.
+     */
+    static PreparedExec prepare(Project project, File projectExecutable) {
+        ConjureRunnerOptions options = runnerOptions(project, projectExecutable);
+        File executable = ExtractionCache.sharedExecutable(projectExecutable, options.extractionCache());
+        return new PreparedExec(
+                project.getLogger(),
+                project.getProjectDir(),
+                executable,
+                options,
+                memoryBudget(project),
+                runnerSource(project, executable, options));
+    }
+
+    static final class PreparedExec {
+        private final Logger logger;
+        private final File workingDir;
+        private final File executable;
+        private final ConjureRunnerOptions options;
+        private final Optional<GeneratorMemoryBudget> memoryBudget;
+        private final RunnerSource runners;
+
+        private PreparedExec(
+                Logger logger,
+                File workingDir,
+                File executable,
+                ConjureRunnerOptions options,
+                Optional<GeneratorMemoryBudget> memoryBudget,
+                RunnerSource runners) {
+            this.logger = logger;
+            this.workingDir = workingDir;
+            this.executable = executable;
+            this.options = options;
+            this.memoryBudget = memoryBudget;
+            this.runners = runners;
+        }
+
+        /** Like {@link GradleExecUtils#exec(Project, String, File, List, List, Collection)}. */
+        void exec(String failedTo, List<String> unloggedArgs, List<String> loggedArgs, Collection<File> inputFiles) {
+            runners.withRunner(runner -> {
+                if (!runner.runsInProcess() || !memoryBudget.isPresent() || inputFiles.isEmpty()) {
+                    runner.invoke(logger, workingDir, failedTo, unloggedArgs, loggedArgs);
+                    return;
+                }
+
+                int estimate = memoryBudget.get().estimateMegabytes(inputFiles);
+                if (memoryBudget.get().fits(estimate)) {
+                    memoryBudget
+                            .get()
+                            .run(estimate, () -> runner.invoke(logger, workingDir, failedTo, unloggedArgs, loggedArgs));
+                    return;
+                }
+
+                logger.info(
+                        "Running {} in a separate process as it is estimated to need {}MB, more than {}",
+                        executable.getName(),
+                        estimate,
+                        MEMORY_BUDGET_PROPERTY);
+                try (ConjureRunnerResource.ConjureRunner external =
+                        ConjureRunnerResource.createExternalRunner(executable, options)) {
+                    external.invoke(logger, workingDir, failedTo, unloggedArgs, loggedArgs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private interface RunnerSource {
+        void withRunner(Consumer<ConjureRunnerResource.ConjureRunner> action);
+    }
+
+    private static RunnerSource runnerSource(Project project, File executable, ConjureRunnerOptions options) {
+        int runnerCacheSize = runnerCacheSize(project);
+        if (runnerCacheSize > 0 && !gradleVersionHighEnough()) {
+            warnUnsupported(project, RUNNER_CACHE_SIZE_PROPERTY);
+        }
+        if (runnerCacheSize > 0 && gradleVersionHighEnough()) {
+            Provider<RunnerCacheResource> cache = project.getGradle()
+                    .getSharedServices()
+                    .registerIfAbsent(
+                            "conjure-runner-cache",
+                            RunnerCacheResource.class,
+                            new Action<BuildServiceSpec<RunnerCacheResource.Params>>() {
+                                @Override
+                                public void execute(BuildServiceSpec<RunnerCacheResource.Params> spec) {
+                                    spec.getParameters().getMaxSize().set(runnerCacheSize);
+                                }
+                            });
+            return action -> {
+                try (ConjureRunnerResource.ConjureRunner runner =
+                        cache.get().getCache().acquire(runnerName(executable, options), executable, options)) {
+                    action.accept(runner);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        } else if (gradleVersionHighEnough()) {
+            Provider<ConjureRunnerResource> service = project.getGradle()
                     .getSharedServices()
                     .registerIfAbsent(
-                            // Executable name must be the cache key, neither the spec parameters
+                            // The name must be the cache key, neither the spec parameters
                             // nor the class are taken into account for caching.
-                            "conjure-runner-" + executable,
+                            runnerName(executable, options),
                             ConjureRunnerResource.class,
                             new Action<BuildServiceSpec<Params>>() {
                                 @Override
                                 public void execute(BuildServiceSpec<Params> spec) {
                                     spec.getParameters().getExecutable().set(executable);
+                                    spec.getParameters()
+                                            .getRedefinedClassCache()
+                                            .set(options.redefinedClassCache());
+                                    spec.getParameters().getExtractionCache().set(options.extractionCache());
+                                    spec.getParameters().getExternalWorkers().set(options.externalWorkers());
+                                    spec.getParameters()
+                                            .getTimeout()
+                                            .set(options.timeout().orElse(null));
                                 }
-                            })
-                    .get()
-                    .invoke(project, failedTo, unloggedArgs, loggedArgs);
+                            });
+            return action -> action.accept(service.get().getRunner());
         } else {
-            try (ConjureRunnerResource.ConjureRunner runner = ConjureRunnerResource.createNewRunner(executable)) {
-                runner.invoke(project, failedTo, unloggedArgs, loggedArgs);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+            return action -> {
+                try (ConjureRunnerResource.ConjureRunner runner =
+                        ConjureRunnerResource.createNewRunner(executable, options)) {
+                    action.accept(runner);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        }
+    }
+
+    private static Optional<GeneratorMemoryBudget> memoryBudget(Project project) {
+        ProviderFactory providers = project.getProviders();
+        Optional<Integer> budgetMegabytes = Optional.ofNullable(providers
+                .gradleProperty(MEMORY_BUDGET_PROPERTY)
+                .map(Integer::parseInt)
+                .getOrNull());
+        if (!budgetMegabytes.isPresent()) {
+            return Optional.empty();
         }
+        if (!gradleVersionHighEnough()) {
+            warnUnsupported(project, MEMORY_BUDGET_PROPERTY);
+            return Optional.empty();
+        }
+        int memoryFactor = providers
+                .gradleProperty(MEMORY_FACTOR_PROPERTY)
+                .map(Integer::parseInt)
+                .getOrElse(DEFAULT_MEMORY_FACTOR);
+        return Optional.of(project.getGradle()
+                .getSharedServices()
+                .registerIfAbsent(
+                        "conjure-generator-memory-budget",
+                        GeneratorMemoryBudget.class,
+                        new Action<BuildServiceSpec<GeneratorMemoryBudget.Params>>() {
+                            @Override
+                            public void execute(BuildServiceSpec<GeneratorMemoryBudget.Params> spec) {
+                                spec.getParameters().getBudgetMegabytes().set(budgetMegabytes.get());
+                                spec.getParameters().getMemoryFactor().set(memoryFactor);
+                            }
+                        })
+                .get());
+    }
+
+    /**
+     * Runners are keyed by their {@link ExtractionCache#sharedExecutable shared executable}, which every project that
+     * extracted the same generator version into its own build directory resolves to, so they share a single warm
+     * runner. Options can also change between builds for cached runners, and are hashed in full as a hashCode()
+     * collision would hand out a runner with the wrong options.
+     */
+    private static String runnerName(File executable, ConjureRunnerOptions options) {
+        return "conjure-runner-" + executable.getAbsolutePath() + "-"
+                + Hashing.sha256().hashString(options.toString(), StandardCharsets.UTF_8);
+    }
+
+    private static ConjureRunnerOptions runnerOptions(Project project, File executable) {
+        String generatorName = executable.getName().replaceFirst("\\.bat$", "");
+        ProviderFactory providers = project.getProviders();
+        return ImmutableConjureRunnerOptions.builder()
+                .redefinedClassCache(RedefinedClassCache.directory(project))
+                .extractionCache(ExtractionCache.directory(project))
+                .externalWorkers(providers
+                        .gradleProperty(EXTERNAL_WORKERS_PROPERTY)
+                        .map(Boolean::parseBoolean)
+                        .getOrElse(false))
+                .timeout(Optional.ofNullable(providers
+                        .gradleProperty(TIMEOUT_SECONDS_PROPERTY + "." + generatorName)
+                        .orElse(providers.gradleProperty(TIMEOUT_SECONDS_PROPERTY))
+                        .map(seconds -> Duration.ofSeconds(Long.parseLong(seconds)))
+                        .getOrNull()))
+                .build();
+    }
+
+    private static int runnerCacheSize(Project project) {
+        return project.getProviders()
+                .gradleProperty(RUNNER_CACHE_SIZE_PROPERTY)
+                .map(Integer::parseInt)
+                .getOrElse(0);
+    }
+
+    /** Settings needing build services are ignored on older Gradle versions, which shouldn't go unnoticed. */
+    private static void warnUnsupported(Project project, String property) {
+        project.getLogger()
+                .warn(
+                        "Ignoring {} as it requires Gradle 7.4.2 or later, but this is Gradle {}",
+                        property,
+                        GradleVersion.current().getVersion());
     }
 
     // See https://github.com/gradle/gradle/issues/17434
@@ -0,0 +1,188 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A jar held in memory as it is stored, i.e. compressed, from which entries are only inflated when they are read. Just
+ * the central directory is parsed up front, so the heap it takes is the size of the jar file rather than of everything
+ * in it. Jars needing ZIP64, i.e. with more than 65535 entries or over 4GB, aren't supported.
+ */
+final class InMemoryJar {
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+    private static final int CENTRAL_HEADER_LENGTH = 46;
+    private static final int LOCAL_HEADER_LENGTH = 30;
+    private static final int MAX_COMMENT_LENGTH = 0xffff;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private final String name;
+    private final ByteBuffer bytes;
+    private final Map<String, Entry> entries;
+    private final Optional<Manifest> manifest;
+
+    private InMemoryJar(String name, ByteBuffer bytes, Map<String, Entry> entries) throws IOException {
+        this.name = name;
+        this.bytes = bytes;
+        this.entries = entries;
+        this.manifest = contains(JarFile.MANIFEST_NAME)
+                ? Optional.of(new Manifest(new ByteArrayInputStream(read(JarFile.MANIFEST_NAME))))
+                : Optional.empty();
+    }
+
+    /** Indexes the jar {@code bytes}, which is called {@code name} in error messages. */
+    static InMemoryJar read(String name, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int end = findEndOfCentralDirectory(name, buffer);
+        int count = Short.toUnsignedInt(buffer.getShort(end + 10));
+        long offset = Integer.toUnsignedLong(buffer.getInt(end + 16));
+        if (count == 0xffff || offset == 0xffffffffL) {
+            throw new IOException(name + " is a ZIP64 archive, which can't be read into memory");
+        }
+
+        Map<String, Entry> entries = new HashMap<>(count);
+        int position = (int) offset;
+        for (int i = 0; i < count; i++) {
+            if (position + CENTRAL_HEADER_LENGTH > bytes.length
+                    || buffer.getInt(position) != CENTRAL_DIRECTORY_SIGNATURE) {
+                throw new IOException("Corrupt central directory in " + name);
+            }
+            int nameLength = Short.toUnsignedInt(buffer.getShort(position + 28));
+            int extraLength = Short.toUnsignedInt(buffer.getShort(position + 30));
+            int commentLength = Short.toUnsignedInt(buffer.getShort(position + 32));
+            String entryName =
+                    new String(bytes, position + CENTRAL_HEADER_LENGTH, nameLength, StandardCharsets.UTF_8);
+            if (!entryName.endsWith("/")) {
+                // The first of any duplicates wins, as it would for a JarFile
+                entries.putIfAbsent(
+                        entryName,
+                        new Entry(
+                                Short.toUnsignedInt(buffer.getShort(position + 10)),
+                                buffer.getInt(position + 20),
+                                buffer.getInt(position + 24),
+                                buffer.getInt(position + 42)));
+            }
+            position += CENTRAL_HEADER_LENGTH + nameLength + extraLength + commentLength;
+        }
+        return new InMemoryJar(name, buffer, entries);
+    }
+
+    private static int findEndOfCentralDirectory(String name, ByteBuffer buffer) throws IOException {
+        // Usually right at the end, unless the archive has a comment
+        int last = buffer.capacity() - END_OF_CENTRAL_DIRECTORY_LENGTH;
+        for (int position = last; position >= 0 && position >= last - MAX_COMMENT_LENGTH; position--) {
+            if (buffer.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return position;
+            }
+        }
+        throw new IOException(name + " is not a jar");
+    }
+
+    String name() {
+        return name;
+    }
+
+    /** The whole jar as it is stored. */
+    byte[] bytes() {
+        return bytes.array();
+    }
+
+    Optional<Manifest> manifest() {
+        return manifest;
+    }
+
+    boolean contains(String entryName) {
+        return entries.containsKey(entryName);
+    }
+
+    /** The contents of {@code entryName}, which must be {@link #contains contained} in the jar. */
+    byte[] read(String entryName) throws IOException {
+        Entry entry = entries.get(entryName);
+        if (entry == null) {
+            throw new IOException(entryName + " is missing from " + name);
+        }
+        int header = entry.localHeaderOffset;
+        if (header < 0
+                || header + LOCAL_HEADER_LENGTH > bytes.capacity()
+                || bytes.getInt(header) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Corrupt entry " + entryName + " in " + name);
+        }
+        int data = header
+                + LOCAL_HEADER_LENGTH
+                + Short.toUnsignedInt(bytes.getShort(header + 26))
+                + Short.toUnsignedInt(bytes.getShort(header + 28));
+        if (entry.compressedSize < 0 || entry.size < 0 || data + entry.compressedSize > bytes.capacity()) {
+            throw new IOException("Corrupt entry " + entryName + " in " + name);
+        }
+
+        byte[] contents = new byte[entry.size];
+        if (entry.method == STORED) {
+            System.arraycopy(bytes.array(), data, contents, 0, entry.size);
+            return contents;
+        } else if (entry.method != DEFLATED) {
+            throw new IOException(
+                    "Entry " + entryName + " in " + name + " uses unsupported compression method " + entry.method);
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(bytes.array(), data, entry.compressedSize);
+            int read = 0;
+            while (read < contents.length) {
+                int inflated = inflater.inflate(contents, read, contents.length - read);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated entry " + entryName + " in " + name);
+                }
+                read += inflated;
+            }
+            return contents;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt entry " + entryName + " in " + name, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static final class Entry {
+        private final int method;
+        private final int compressedSize;
+        private final int size;
+        private final int localHeaderOffset;
+
+        Entry(int method, int compressedSize, int size, int localHeaderOffset) {
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.api.GradleException;
+
+/**
+ * Compiles each conjure YAML file separately, together with the files it pulls in through {@code conjure-imports},
+ * and merges the results into one IR. Each file's IR is cached by the contents of the file and everything it imports,
+ * so after a change only that file and the files importing them are compiled again.
+ *
+ * <p>Compiling every file separately costs a compiler invocation per file, so when nothing is cached yet, as in a clean
+ * build, the whole directory is compiled at once instead and files are only cached from the next compile on. The whole
+ * directory is also compiled at once whenever a file imports something outside of it, which isn't tracked. Either way
+ * definitions are listed sorted by name, so the IR doesn't depend on how it was compiled.
+ */
+final class IncrementalIrCompiler {
+
+    private static final ObjectMapper mapper = GenerateConjureServiceDependenciesTask.jsonMapper;
+
+    /** To match e.g. {@code   conjure-imports:} or {@code   conjure-imports: { other: other.yml }}. */
+    private static final Pattern CONJURE_IMPORTS_REGEX = Pattern.compile("^( *)conjure-imports: *(.*)$");
+
+    private static final Splitter LINE_SPLITTER = Splitter.on('\n');
+
+    /** Written once the whole directory has been compiled, so that the next compile starts caching files. */
+    private static final String COMPILED_MARKER = "compiled";
+
+    private final File inputDirectory;
+    private final File cacheDirectory;
+    private final String compilerKey;
+
+    /**
+     * @param compilerKey identifies the compiler and any options that affect its output, cached IR is only reused
+     *     with the same key.
+     */
+    IncrementalIrCompiler(File inputDirectory, File cacheDirectory, String compilerKey) {
+        this.inputDirectory = inputDirectory;
+        this.cacheDirectory = cacheDirectory;
+        this.compilerKey = compilerKey;
+    }
+
+    /**
+     * Writes the merged IR of every YAML file to {@code outputIr}. {@code compileSource} is called with each YAML file
+     * whose IR isn't cached, or with the whole input directory, and the file to write its IR to, possibly concurrently
+     * when {@code parallelism} is above 1.
+     */
+    void compile(File outputIr, JsonNode extensions, int parallelism, BiConsumer<File, File> compileSource) {
+        try {
+            Files.createDirectories(cacheDirectory.toPath());
+            Path compiledMarker = cacheDirectory.toPath().resolve(COMPILED_MARKER);
+            Sources sources = sources();
+            boolean anyCached = sources.cacheKeys.values().stream()
+                    .anyMatch(key -> cachedIr(key).exists());
+            if (sources.importsOutsideInputDirectory || (!anyCached && !Files.exists(compiledMarker))) {
+                File ir = new File(cacheDirectory, "all.conjure.json.partial");
+                compileSource.accept(inputDirectory, ir);
+                JsonNode compiled = readIr(ir);
+                Files.delete(ir.toPath());
+                writeIr(outputIr, merge(
+                        ImmutableMap.of(inputDirectory.toPath(), compiled), ImmutableMap.of(), extensions));
+                if (!sources.importsOutsideInputDirectory) {
+                    Files.writeString(compiledMarker, "");
+                }
+                return;
+            }
+
+            List<Path> uncached = sources.cacheKeys.keySet().stream()
+                    .filter(yaml -> !cachedIr(sources.cacheKeys.get(yaml)).exists())
+                    .collect(Collectors.toList());
+            ParallelUtils.forEach(uncached, parallelism, "conjure-ir", yaml -> {
+                File ir = cachedIr(sources.cacheKeys.get(yaml));
+                File partial = new File(cacheDirectory, ir.getName() + ".partial");
+                compileSource.accept(yaml.toFile(), partial);
+                try {
+                    Files.move(partial.toPath(), ir.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            Map<Path, JsonNode> irs = new LinkedHashMap<>();
+            sources.cacheKeys.forEach((yaml, key) -> irs.put(yaml, readIr(cachedIr(key))));
+            writeIr(outputIr, merge(irs, sources.importClosures, extensions));
+
+            deleteUnusedCacheEntries(ImmutableSet.copyOf(sources.cacheKeys.values()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compile conjure IR incrementally", e);
+        }
+    }
+
+    /** Cache keys and import closures of every YAML file, in a stable order. */
+    private Sources sources() throws IOException {
+        Path root = inputDirectory.toPath().toRealPath();
+        Map<Path, String> contentHashes = new TreeMap<>();
+        Map<Path, Optional<Set<Path>>> imports = new HashMap<>();
+        boolean importsOutsideInputDirectory = false;
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) files.filter(path -> path.toString().endsWith(".yml"))::iterator) {
+                // Files are identified by their real path, so that links and the files they point to are the same
+                Path yaml = path.toRealPath();
+                importsOutsideInputDirectory |= !yaml.startsWith(root);
+                byte[] contents = Files.readAllBytes(yaml);
+                contentHashes.put(yaml, Hashing.sha256().hashBytes(contents).toString());
+                Optional<Set<Path>> yamlImports = conjureImports(new String(contents, StandardCharsets.UTF_8))
+                        .map(importPaths -> importPaths.stream()
+                                .map(importPath -> realPath(path.getParent().resolve(importPath)))
+                                .collect(Collectors.toSet()));
+                importsOutsideInputDirectory |= yamlImports.orElseGet(ImmutableSet::of).stream()
+                        .anyMatch(dependency -> !dependency.startsWith(root));
+                imports.put(yaml, yamlImports);
+            }
+        }
+
+        // Hashes of imported files which aren't YAML files themselves are added as they're needed
+        Set<Path> yamlFiles = ImmutableSet.copyOf(contentHashes.keySet());
+        Map<Path, String> cacheKeys = new LinkedHashMap<>();
+        Map<Path, Set<Path>> importClosures = new HashMap<>();
+        for (Path yaml : yamlFiles) {
+            Set<Path> closure = importClosure(yaml, imports, yamlFiles);
+            Hasher hasher = Hashing.sha256().newHasher().putString(compilerKey, StandardCharsets.UTF_8);
+            for (Path dependency : closure) {
+                hasher.putString(root.relativize(dependency).toString(), StandardCharsets.UTF_8)
+                        .putString(contentHash(dependency, contentHashes), StandardCharsets.UTF_8);
+            }
+            cacheKeys.put(yaml, hasher.hash().toString());
+            importClosures.put(yaml, closure);
+        }
+        return new Sources(cacheKeys, importClosures, importsOutsideInputDirectory);
+    }
+
+    private static Path realPath(Path path) {
+        try {
+            return Files.exists(path) ? path.toRealPath() : path.toAbsolutePath().normalize();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to resolve " + path, e);
+        }
+    }
+
+    /** The hash of a YAML file, or of any other imported file, which the walk over YAML files didn't see. */
+    private static String contentHash(Path file, Map<Path, String> contentHashes) {
+        return contentHashes.computeIfAbsent(file, _file -> {
+            if (!Files.isRegularFile(file)) {
+                return "missing";
+            }
+            try {
+                return Hashing.sha256().hashBytes(Files.readAllBytes(file)).toString();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read " + file, e);
+            }
+        });
+    }
+
+    /**
+     * {@code yaml} and every file it transitively imports, sorted. Files whose imports couldn't be read could import
+     * anything, so they depend on every file.
+     */
+    private static Set<Path> importClosure(Path yaml, Map<Path, Optional<Set<Path>>> imports, Set<Path> allFiles) {
+        Set<Path> closure = new TreeSet<>();
+        Deque<Path> toVisit = new ArrayDeque<>();
+        toVisit.add(yaml);
+        while (!toVisit.isEmpty()) {
+            Path next = toVisit.pop();
+            if (!closure.add(next)) {
+                continue;
+            }
+            Optional<Set<Path>> nextImports = imports.getOrDefault(next, Optional.of(ImmutableSet.of()));
+            if (!nextImports.isPresent()) {
+                closure.addAll(allFiles);
+                return closure;
+            }
+            toVisit.addAll(nextImports.get());
+        }
+        return closure;
+    }
+
+    /**
+     * The paths listed under {@code conjure-imports}, or empty if the section is written in a way this simple scanner
+     * doesn't understand.
+     */
+    @VisibleForTesting
+    static Optional<Set<String>> conjureImports(String yaml) {
+        Set<String> imports = new TreeSet<>();
+        List<String> lines = LINE_SPLITTER.splitToList(yaml);
+        for (int i = 0; i < lines.size(); i++) {
+            Matcher matcher = CONJURE_IMPORTS_REGEX.matcher(withoutComment(lines.get(i)));
+            if (!matcher.matches()) {
+                continue;
+            }
+            int indent = matcher.group(1).length();
+            String inline = matcher.group(2).trim();
+            if (!inline.isEmpty()) {
+                if (!inline.startsWith("{") || !inline.endsWith("}")) {
+                    return Optional.empty();
+                }
+                for (String entry : Splitter.on(',')
+                        .trimResults()
+                        .omitEmptyStrings()
+                        .split(inline.substring(1, inline.length() - 1))) {
+                    Optional<String> path = importPath(entry);
+                    if (!path.isPresent()) {
+                        return Optional.empty();
+                    }
+                    imports.add(path.get());
+                }
+                continue;
+            }
+            for (int j = i + 1; j < lines.size(); j++) {
+                String line = withoutComment(lines.get(j));
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                if (CharMatcher.isNot(' ').indexIn(line) <= indent) {
+                    break;
+                }
+                Optional<String> path = importPath(line.trim());
+                if (!path.isPresent()) {
+                    return Optional.empty();
+                }
+                imports.add(path.get());
+            }
+        }
+        return Optional.of(imports);
+    }
+
+    private static Optional<String> importPath(String entry) {
+        int colon = entry.indexOf(':');
+        if (colon < 0) {
+            return Optional.empty();
+        }
+        String path = CharMatcher.anyOf("\"'").trimFrom(entry.substring(colon + 1).trim());
+        return path.isEmpty() ? Optional.empty() : Optional.of(path);
+    }
+
+    private static String withoutComment(String line) {
+        String trimmed = CharMatcher.is('\r').trimTrailingFrom(line);
+        if (trimmed.startsWith("#")) {
+            return "";
+        }
+        int comment = trimmed.indexOf(" #");
+        return comment >= 0 ? trimmed.substring(0, comment) : trimmed;
+    }
+
+    /**
+     * Combines the IRs of each file, which also contain the definitions of the files they import. A definition may
+     * therefore be in several IRs, but only if one file they all import could have defined it. Anything else, such as
+     * the same name defined in two files which don't import each other, fails the build just like compiling them
+     * together would. Definitions are sorted by name.
+     */
+    @VisibleForTesting
+    static ObjectNode merge(Map<Path, JsonNode> irs, Map<Path, Set<Path>> importClosures, JsonNode extensions) {
+        ObjectNode merged = mapper.createObjectNode();
+        Map<String, Definition> types = new TreeMap<>();
+        Map<String, Definition> errors = new TreeMap<>();
+        Map<String, Definition> services = new TreeMap<>();
+        irs.forEach((file, ir) -> {
+            if (ir.has("version")) {
+                merged.set("version", ir.get("version"));
+            }
+            for (JsonNode type : ir.path("types")) {
+                addDefinition(types, type.path(type.path("type").asText()).path("typeName"), type, file);
+            }
+            for (JsonNode error : ir.path("errors")) {
+                addDefinition(errors, error.path("errorName"), error, file);
+            }
+            for (JsonNode service : ir.path("services")) {
+                addDefinition(services, service.path("serviceName"), service, file);
+            }
+        });
+        merged.set("errors", arrayOf(errors, importClosures));
+        merged.set("types", arrayOf(types, importClosures));
+        merged.set("services", arrayOf(services, importClosures));
+        merged.set("extensions", extensions);
+        return merged;
+    }
+
+    private static void addDefinition(Map<String, Definition> definitions, JsonNode name, JsonNode node, Path file) {
+        String qualifiedName = name.path("package").asText() + "." + name.path("name").asText();
+        Definition definition = definitions.computeIfAbsent(qualifiedName, _name -> new Definition(node));
+        if (!definition.node.equals(node)) {
+            throw new GradleException("Conjure definition " + qualifiedName + " is defined differently in "
+                    + definition.files.get(0) + " and " + file);
+        }
+        definition.files.add(file);
+    }
+
+    private static ArrayNode arrayOf(Map<String, Definition> definitions, Map<Path, Set<Path>> importClosures) {
+        ArrayNode array = mapper.createArrayNode();
+        definitions.forEach((name, definition) -> {
+            if (!hasCommonImport(definition.files, importClosures)) {
+                throw new GradleException("Conjure definition " + name + " is defined in more than one of "
+                        + definition.files + ", which don't import a common file defining it");
+            }
+            array.add(definition.node);
+        });
+        return array;
+    }
+
+    /** Whether every file in {@code files} imports, or is, one of them, which must then be where the definition is. */
+    private static boolean hasCommonImport(List<Path> files, Map<Path, Set<Path>> importClosures) {
+        if (files.size() == 1) {
+            return true;
+        }
+        return files.stream().anyMatch(candidate -> files.stream()
+                .allMatch(file -> importClosures.getOrDefault(file, ImmutableSet.of()).contains(candidate)));
+    }
+
+    private static void writeIr(File outputIr, ObjectNode ir) throws IOException {
+        mapper.writerWithDefaultPrettyPrinter().writeValue(outputIr, ir);
+    }
+
+    private File cachedIr(String key) {
+        return new File(cacheDirectory, key + ".conjure.json");
+    }
+
+    private static JsonNode readIr(File ir) {
+        try {
+            return mapper.readTree(ir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + ir, e);
+        }
+    }
+
+    private void deleteUnusedCacheEntries(Set<String> usedKeys) throws IOException {
+        Set<String> usedFileNames = Stream.concat(
+                        usedKeys.stream().map(key -> cachedIr(key).getName()), Stream.of(COMPILED_MARKER))
+                .collect(Collectors.toSet());
+        try (Stream<Path> entries = Files.list(cacheDirectory.toPath())) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                if (!usedFileNames.contains(entry.getFileName().toString())) {
+                    Files.delete(entry);
+                }
+            }
+        }
+    }
+
+    private static final class Sources {
+        private final Map<Path, String> cacheKeys;
+        private final Map<Path, Set<Path>> importClosures;
+        private final boolean importsOutsideInputDirectory;
+
+        Sources(
+                Map<Path, String> cacheKeys,
+                Map<Path, Set<Path>> importClosures,
+                boolean importsOutsideInputDirectory) {
+            this.cacheKeys = cacheKeys;
+            this.importClosures = importClosures;
+            this.importsOutsideInputDirectory = importsOutsideInputDirectory;
+        }
+    }
+
+    /** A definition and the files whose IR contains it. */
+    private static final class Definition {
+        private final JsonNode node;
+        private final List<Path> files = new ArrayList<>();
+
+        Definition(JsonNode node) {
+            this.node = node;
+        }
+    }
+}
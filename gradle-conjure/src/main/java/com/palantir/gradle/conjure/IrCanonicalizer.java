@@ -0,0 +1,62 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Sorts the definitions in an IR by name, so that IR compiled from the same definitions is identical no matter which
+ * files they were written in or in which order.
+ */
+final class IrCanonicalizer {
+
+    /** Sorts types, errors and services by name, and the endpoints of each service by name, in place. */
+    static ObjectNode canonicalize(ObjectNode ir) {
+        sort(ir, "types", type -> qualifiedName(type.path(type.path("type").asText()).path("typeName")));
+        sort(ir, "errors", error -> qualifiedName(error.path("errorName")));
+        sort(ir, "services", service -> qualifiedName(service.path("serviceName")));
+        for (JsonNode service : ir.path("services")) {
+            if (service.isObject()) {
+                sort((ObjectNode) service, "endpoints", endpoint -> endpoint.path("endpointName").asText());
+            }
+        }
+        return ir;
+    }
+
+    private static void sort(ObjectNode parent, String field, Function<JsonNode, String> name) {
+        JsonNode definitions = parent.get(field);
+        if (definitions == null || !definitions.isArray()) {
+            return;
+        }
+        List<JsonNode> sorted = new ArrayList<>();
+        definitions.forEach(sorted::add);
+        sorted.sort(Comparator.comparing(name));
+        ((ArrayNode) definitions).removeAll().addAll(sorted);
+    }
+
+    private static String qualifiedName(JsonNode typeName) {
+        return typeName.path("package").asText() + "." + typeName.path("name").asText();
+    }
+
+    private IrCanonicalizer() {}
+}
@@ -0,0 +1,147 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Works out which part of an IR has to be generated again after it changed. That's every definition which changed or
+ * references one that did, along with everything those reference so that the generator can still resolve them. Errors
+ * are always included, as generators write all errors of a namespace into a single file.
+ */
+final class IrDiff {
+    private static final List<String> SECTIONS = ImmutableList.of("types", "errors", "services");
+
+    /**
+     * An IR with just the definitions of {@code current} whose generated code may differ from {@code previous}, or
+     * empty if everything has to be generated again. That's the case when definitions were removed, as their files
+     * would have to be deleted, or when anything besides the definitions changed.
+     */
+    static Optional<ObjectNode> changedSubset(JsonNode previous, JsonNode current) {
+        if (!previous.isObject()
+                || !current.isObject()
+                || !withoutDefinitions(previous).equals(withoutDefinitions(current))) {
+            return Optional.empty();
+        }
+        Map<JsonNode, JsonNode> previousDefinitions = definitions(previous);
+        Map<JsonNode, JsonNode> currentDefinitions = definitions(current);
+        if (!currentDefinitions.keySet().containsAll(previousDefinitions.keySet())) {
+            return Optional.empty();
+        }
+
+        Map<JsonNode, Set<JsonNode>> references = new HashMap<>();
+        Map<JsonNode, Set<JsonNode>> referencedBy = new HashMap<>();
+        currentDefinitions.forEach((name, definition) -> {
+            Set<JsonNode> referenced = new HashSet<>();
+            collectReferences(definition, currentDefinitions.keySet(), referenced);
+            referenced.remove(name);
+            references.put(name, referenced);
+            referenced.forEach(reference -> referencedBy
+                    .computeIfAbsent(reference, _key -> new HashSet<>())
+                    .add(name));
+        });
+
+        Set<JsonNode> changed = new HashSet<>();
+        currentDefinitions.forEach((name, definition) -> {
+            if (!definition.equals(previousDefinitions.get(name))) {
+                changed.add(name);
+            }
+        });
+        Set<JsonNode> affected = closure(changed, referencedBy);
+
+        Set<JsonNode> roots = new HashSet<>(affected);
+        for (JsonNode error : current.path("errors")) {
+            roots.add(error.path("errorName"));
+        }
+        Set<JsonNode> included = closure(roots, references);
+
+        ObjectNode subset = ((ObjectNode) current).deepCopy();
+        for (String section : SECTIONS) {
+            if (subset.get(section) instanceof ArrayNode) {
+                ArrayNode definitions = (ArrayNode) subset.get(section);
+                for (int i = definitions.size() - 1; i >= 0; i--) {
+                    if (!included.contains(name(section, definitions.get(i)))) {
+                        definitions.remove(i);
+                    }
+                }
+            }
+        }
+        return Optional.of(subset);
+    }
+
+    private static ObjectNode withoutDefinitions(JsonNode ir) {
+        ObjectNode rest = ((ObjectNode) ir).deepCopy();
+        rest.remove(SECTIONS);
+        return rest;
+    }
+
+    private static Map<JsonNode, JsonNode> definitions(JsonNode ir) {
+        Map<JsonNode, JsonNode> definitions = new LinkedHashMap<>();
+        for (String section : SECTIONS) {
+            for (JsonNode definition : ir.path(section)) {
+                definitions.put(name(section, definition), definition);
+            }
+        }
+        return definitions;
+    }
+
+    private static JsonNode name(String section, JsonNode definition) {
+        switch (section) {
+            case "types":
+                return definition.path(definition.path("type").asText()).path("typeName");
+            case "errors":
+                return definition.path("errorName");
+            default:
+                return definition.path("serviceName");
+        }
+    }
+
+    /** Adds every type name within {@code node} that names one of {@code names}. */
+    private static void collectReferences(JsonNode node, Set<JsonNode> names, Set<JsonNode> referenced) {
+        if (node.isObject() && node.has("name") && node.has("package") && names.contains(node)) {
+            referenced.add(node);
+        }
+        node.forEach(child -> collectReferences(child, names, referenced));
+    }
+
+    private static Set<JsonNode> closure(Set<JsonNode> roots, Map<JsonNode, Set<JsonNode>> edges) {
+        Set<JsonNode> closure = new HashSet<>();
+        Deque<JsonNode> toVisit = new ArrayDeque<>(roots);
+        while (!toVisit.isEmpty()) {
+            JsonNode next = toVisit.pop();
+            if (closure.add(next)) {
+                toVisit.addAll(edges.getOrDefault(next, ImmutableSet.of()));
+            }
+        }
+        return closure;
+    }
+
+    private IrDiff() {}
+}
@@ -0,0 +1,101 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+
+/**
+ * Replaces the extensions of an IR without reading the rest of it into memory. Everything around the top level
+ * {@code extensions} field is copied byte for byte, so the IR stays formatted exactly as the compiler wrote it.
+ */
+final class IrExtensions {
+
+    private static final ObjectMapper mapper = GenerateConjureServiceDependenciesTask.jsonMapper;
+
+    /**
+     * Writes {@code ir} to {@code output}, which may be the same file, with its extensions set to {@code extensions}.
+     */
+    static void replace(File ir, JsonNode extensions, File output) throws IOException {
+        long valueStart = -1;
+        long valueEnd = -1;
+        long lastValueEnd;
+        boolean hasFields = false;
+        try (JsonParser parser = mapper.getFactory().createParser(ir)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected " + ir + " to contain a JSON object");
+            }
+            lastValueEnd = parser.currentLocation().getByteOffset();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                hasFields = true;
+                boolean isExtensions = parser.currentName().equals("extensions");
+                parser.nextToken();
+                if (isExtensions) {
+                    valueStart = parser.currentTokenLocation().getByteOffset();
+                }
+                parser.skipChildren();
+                // Strings are only read up to their closing quote when asked for
+                parser.finishToken();
+                lastValueEnd = parser.currentLocation().getByteOffset();
+                if (isExtensions) {
+                    valueEnd = lastValueEnd;
+                }
+            }
+        }
+
+        Path written = output.toPath().resolveSibling(output.getName() + ".tmp");
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(ir.toPath()));
+                OutputStream out = new BufferedOutputStream(Files.newOutputStream(written))) {
+            if (valueStart >= 0) {
+                ByteStreams.copy(ByteStreams.limit(in, valueStart), out);
+                out.write(serialize(extensions));
+                ByteStreams.skipFully(in, valueEnd - valueStart);
+            } else {
+                ByteStreams.copy(ByteStreams.limit(in, lastValueEnd), out);
+                out.write(((hasFields ? "," : "") + "\n  \"extensions\" : ").getBytes(StandardCharsets.UTF_8));
+                out.write(serialize(extensions));
+            }
+            ByteStreams.copy(in, out);
+        }
+        Files.move(written, output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Pretty prints {@code extensions} indented as the value of a top level field. */
+    private static byte[] serialize(JsonNode extensions) throws IOException {
+        String wrapped = mapper.writerWithDefaultPrettyPrinter()
+                .writeValueAsString(Collections.singletonMap("extensions", extensions));
+        String value = wrapped.substring(wrapped.indexOf(':') + 1, wrapped.lastIndexOf('}'))
+                .strip();
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private IrExtensions() {}
+}
@@ -0,0 +1,134 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.hash.HashCode;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+
+/**
+ * A small summary of an IR, published next to it so that consumers can learn about an API without downloading and
+ * parsing the whole IR. Its {@code extensions} only hold the {@code recommended-product-dependencies}, so it can be
+ * read by {@link IrProductDependencies} just like an IR.
+ */
+final class IrMetadata {
+    /**
+     * Classifier of the published metadata artifact. Being classified, it doesn't compete with the IR for the main
+     * artifact of the publication, which determines the POM's packaging.
+     */
+    static final String CLASSIFIER = "conjure-metadata";
+
+    static final String EXTENSION = "json";
+
+    /** Bumped whenever the format changes incompatibly. */
+    static final int FORMAT_VERSION = 1;
+
+    private static final String CONFIGURATION = "conjureMetadata";
+
+    private static final String PRODUCT_DEPENDENCIES = "recommended-product-dependencies";
+
+    static ObjectNode metadata(JsonNode ir, HashCode irHash) {
+        ObjectNode metadata = GenerateConjureServiceDependenciesTask.jsonMapper.createObjectNode();
+        metadata.put("format-version", FORMAT_VERSION);
+        metadata.put("ir-sha256", irHash.toString());
+        metadata.set("ir-version", ir.path("version"));
+        metadata.put("type-count", ir.path("types").size());
+        metadata.put("error-count", ir.path("errors").size());
+        metadata.put("service-count", ir.path("services").size());
+
+        ArrayNode services = metadata.putArray("services");
+        for (JsonNode service : ir.path("services")) {
+            JsonNode serviceName = service.path("serviceName");
+            services.add(serviceName.path("package").asText() + "." + serviceName.path("name").asText());
+        }
+
+        // Other extensions can be arbitrarily large, so only their names are kept
+        ArrayNode extensionNames = metadata.putArray("extension-names");
+        ir.path("extensions").fieldNames().forEachRemaining(extensionNames::add);
+        ObjectNode extensions = metadata.putObject("extensions");
+        if (ir.path("extensions").has(PRODUCT_DEPENDENCIES)) {
+            extensions.set(PRODUCT_DEPENDENCIES, ir.path("extensions").get(PRODUCT_DEPENDENCIES));
+        }
+        return metadata;
+    }
+
+    /**
+     * Creates the configuration resolving the metadata published next to each IR which {@code irConfiguration} depends
+     * on, in the same versions. Its dependencies are only derived from the declared ones, so nothing is resolved until
+     * the metadata is needed.
+     */
+    static Configuration createConfiguration(Project project, Configuration irConfiguration) {
+        return project.getConfigurations().create(CONFIGURATION, conf -> {
+            conf.setVisible(false);
+            conf.setCanBeConsumed(false);
+            conf.setTransitive(false);
+            conf.shouldResolveConsistentlyWith(irConfiguration);
+            conf.getDependencies()
+                    .addAllLater(project.provider(() -> irConfiguration
+                            .getDependencies()
+                            .withType(ExternalModuleDependency.class)
+                            .stream()
+                            .map(ir -> metadataDependency(project, ir))
+                            .collect(Collectors.toList())));
+        });
+    }
+
+    private static Dependency metadataDependency(Project project, ExternalModuleDependency ir) {
+        Map<String, String> notation = new HashMap<>();
+        notation.put("group", ir.getGroup());
+        notation.put("name", ir.getName());
+        if (ir.getVersion() != null) {
+            notation.put("version", ir.getVersion());
+        }
+        notation.put("classifier", CLASSIFIER);
+        notation.put("ext", EXTENSION);
+        return project.getDependencies().create(notation);
+    }
+
+    /**
+     * The metadata resolved by {@code configuration} for the API named {@code apiName}, if it was published. APIs
+     * published before metadata existed simply don't have any.
+     */
+    static Optional<File> find(Configuration configuration, String apiName) {
+        for (ResolvedArtifactResult artifact : configuration
+                .getIncoming()
+                .artifactView(view -> view.lenient(true))
+                .getArtifacts()) {
+            ComponentIdentifier component = artifact.getId().getComponentIdentifier();
+            if (component instanceof ModuleComponentIdentifier
+                    && ((ModuleComponentIdentifier) component).getModule().equals(apiName)) {
+                return Optional.of(artifact.getFile());
+            }
+        }
+        return Optional.empty();
+    }
+
+    private IrMetadata() {}
+}
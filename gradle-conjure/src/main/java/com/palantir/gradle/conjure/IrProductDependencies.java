@@ -0,0 +1,91 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.conjure.java.serialization.ObjectMappers;
+import com.palantir.gradle.dist.ProductDependency;
+import com.palantir.logsafe.exceptions.SafeRuntimeException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Reads the {@code recommended-product-dependencies} extension of IR files, remembering the result for each file's
+ * path, size and modification time so that every IR is read at most once per build however often it's asked for. Only
+ * the extensions are parsed, the rest of the IR is skipped over.
+ */
+public abstract class IrProductDependencies implements BuildService<BuildServiceParameters.None> {
+    private static final ObjectMapper OBJECT_MAPPER = ObjectMappers.newClientObjectMapper();
+    private static final TypeReference<Set<ProductDependency>> PRODUCT_DEPENDENCIES = new TypeReference<>() {};
+
+    private final ConcurrentMap<String, Set<ProductDependency>> productDependencies = new ConcurrentHashMap<>();
+
+    static Provider<IrProductDependencies> get(Project project) {
+        return project.getGradle()
+                .getSharedServices()
+                .registerIfAbsent("conjure-ir-product-dependencies", IrProductDependencies.class, _spec -> {});
+    }
+
+    final Set<ProductDependency> productDependencies(File irFile) {
+        return productDependencies.computeIfAbsent(FileHasher.stamp(irFile), _stamp -> read(irFile));
+    }
+
+    @VisibleForTesting
+    static Set<ProductDependency> read(File irFile) {
+        try (JsonParser parser = OBJECT_MAPPER.createParser(irFile)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new SafeRuntimeException("Expected conjure definition to be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals("extensions") && value == JsonToken.START_OBJECT) {
+                    return readExtensions(parser);
+                }
+                parser.skipChildren();
+            }
+            return ImmutableSet.of();
+        } catch (IOException e) {
+            throw new SafeRuntimeException("Failed to parse conjure definition", e);
+        }
+    }
+
+    private static Set<ProductDependency> readExtensions(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("recommended-product-dependencies") && value == JsonToken.START_ARRAY) {
+                Set<ProductDependency> dependencies = parser.readValueAs(PRODUCT_DEPENDENCIES);
+                return ImmutableSet.copyOf(dependencies);
+            }
+            parser.skipChildren();
+        }
+        return ImmutableSet.of();
+    }
+}
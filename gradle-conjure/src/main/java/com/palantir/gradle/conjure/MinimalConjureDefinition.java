@@ -1,37 +0,0 @@
-/*
- * (c) Copyright 2020 Palantir Technologies Inc. All rights reserved.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package com.palantir.gradle.conjure;
-
-import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-import com.palantir.gradle.dist.ProductDependency;
-import java.util.Optional;
-import java.util.Set;
-import org.immutables.value.Value;
-
-@Value.Immutable
-@JsonDeserialize(as = ImmutableMinimalConjureDefinition.class)
-public interface MinimalConjureDefinition {
-    Optional<Extensions> extensions();
-
-    @Value.Immutable
-    @JsonDeserialize(as = ImmutableExtensions.class)
-    interface Extensions {
-        @JsonProperty("recommended-product-dependencies")
-        Set<ProductDependency> productDependencies();
-    }
-}
@@ -32,11 +32,11 @@ final class OsUtils {
         return new File(appendDotBatIfWindows(executable.getPath()));
     }
 
-    static String escapeAndWrapArgIfWindows(String argument) {
-        return Os.isFamily(Os.FAMILY_WINDOWS) ? ("\"" + argument.replaceAll("\"", "\"\"") + "\"") : argument;
+    static boolean isWindows() {
+        return Os.isFamily(Os.FAMILY_WINDOWS);
     }
 
     private static String appendIfWindows(String toAppend, String value) {
-        return value + (Os.isFamily(Os.FAMILY_WINDOWS) ? toAppend : "");
+        return value + (isWindows() ? toAppend : "");
     }
 }
@@ -0,0 +1,149 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Generators always write every file, so they generate into a staging directory which is then synced into the real
+ * output. Files whose contents didn't change are left alone, keeping their modification times, so that incremental
+ * compilation downstream only sees the files that really changed.
+ */
+final class OutputSync {
+
+    /** Returns an empty staging directory for {@code key} under {@code temporaryDir}. */
+    static File stagingDirectory(File temporaryDir, String key) {
+        File staging = new File(temporaryDir, "staging-" + key);
+        try {
+            FileUtils.deleteDirectory(staging);
+            Files.createDirectories(staging.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create staging directory " + staging, e);
+        }
+        return staging;
+    }
+
+    /**
+     * Makes {@code output} match {@code staging}, moving over only new or changed files, then deletes
+     * {@code staging}. Files in {@code output} which weren't generated are deleted, unless their path relative to
+     * {@code output} (using {@code /} separators) matches {@code preserved}.
+     */
+    static void sync(File staging, File output, Predicate<String> preserved) {
+        try {
+            doSync(staging.toPath(), output.toPath(), preserved);
+            FileUtils.deleteDirectory(staging);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync generated files into " + output, e);
+        }
+    }
+
+    /**
+     * Moves the new or changed files of {@code staging} into {@code output}, then deletes {@code staging}. Unlike
+     * {@link #sync}, files which weren't generated are left alone, for when only part of the output was generated.
+     */
+    static void overlay(File staging, File output) {
+        try {
+            moveChangedFiles(staging.toPath(), output.toPath());
+            FileUtils.deleteDirectory(staging);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to copy generated files into " + output, e);
+        }
+    }
+
+    private static void doSync(Path staging, Path output, Predicate<String> preserved) throws IOException {
+        Set<Path> generated = moveChangedFiles(staging, output);
+
+        Files.walkFileTree(output, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes _attrs) {
+                return isPreserved(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes _attrs) throws IOException {
+                if (!generated.contains(file) && !isPreserved(file)) {
+                    Files.delete(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                if (!generated.contains(dir)) {
+                    try {
+                        Files.delete(dir);
+                    } catch (DirectoryNotEmptyException e) {
+                        // Still holds preserved files
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            private boolean isPreserved(Path path) {
+                return !path.equals(output)
+                        && preserved.test(output.relativize(path).toString().replace(File.separatorChar, '/'));
+            }
+        });
+    }
+
+    /** Returns every file and directory in {@code output} that corresponds to one in {@code staging}. */
+    private static Set<Path> moveChangedFiles(Path staging, Path output) throws IOException {
+        List<Path> generatedFiles;
+        try (Stream<Path> files = Files.walk(staging)) {
+            generatedFiles = files.collect(Collectors.toList());
+        }
+
+        Set<Path> generated = new HashSet<>();
+        for (Path source : generatedFiles) {
+            Path target = output.resolve(staging.relativize(source).toString());
+            generated.add(target);
+            if (Files.isDirectory(source)) {
+                if (Files.exists(target) && !Files.isDirectory(target)) {
+                    Files.delete(target);
+                }
+                Files.createDirectories(target);
+            } else if (Files.isDirectory(target)) {
+                FileUtils.deleteDirectory(target.toFile());
+                Files.move(source, target);
+            } else if (!Files.isRegularFile(target) || !FileUtils.contentEquals(source.toFile(), target.toFile())) {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return generated;
+    }
+
+    private OutputSync() {}
+}
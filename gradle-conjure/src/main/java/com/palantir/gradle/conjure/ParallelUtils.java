@@ -0,0 +1,82 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+final class ParallelUtils {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelUtils.class);
+
+    /** Longer than {@link CancellableInvocation} gives a cancelled generator to stop. */
+    private static final Duration TERMINATION_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Runs {@code action} for every item, using at most {@code parallelism} threads. The first failure cancels all
+     * outstanding work, waits for it to stop and is rethrown on the calling thread. {@code action} may run on other
+     * threads, so must not use project state which wasn't resolved beforehand.
+     */
+    static <T> void forEach(Collection<T> items, int parallelism, String threadNamePrefix, Consumer<T> action) {
+        int threads = Math.min(parallelism, items.size());
+        if (threads <= 1) {
+            items.forEach(action);
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                threads,
+                new ThreadFactoryBuilder()
+                        .setNameFormat(threadNamePrefix + "-%d")
+                        .setDaemon(true)
+                        .build());
+        try {
+            CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+            items.forEach(item -> completionService.submit(() -> action.accept(item), null));
+            for (int i = 0; i < items.size(); i++) {
+                completionService.take().get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Throwables.throwIfUnchecked(cause);
+            throw new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for parallel work to complete", e);
+        } finally {
+            // Fail fast: drop anything not yet started and interrupt whatever is still running, then wait for it to
+            // stop so that nothing keeps writing outputs once the task has failed
+            executor.shutdownNow();
+            if (!Uninterruptibles.awaitTerminationUninterruptibly(executor, TERMINATION_TIMEOUT)) {
+                log.warn("{} threads did not stop within {} of being cancelled", threadNamePrefix, TERMINATION_TIMEOUT);
+            }
+        }
+    }
+
+    private ParallelUtils() {}
+}
@@ -0,0 +1,108 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.function.Supplier;
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.ClassFileVersion;
+import org.gradle.api.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the bytes of generator main classes after {@link GradleExecStubs} have been substituted in, so that later
+ * builds can define the rewritten class directly instead of building a type pool and redefining it again. Classes no
+ * build used for {@link CacheCleanup#MAX_UNUSED} are deleted.
+ */
+final class RedefinedClassCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RedefinedClassCache.class);
+
+    /** Must be bumped whenever the rewrite applied to main classes changes in a way the stub signatures don't show. */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    static File directory(Project project) {
+        return project.getGradle()
+                .getGradleUserHomeDir()
+                .toPath()
+                .resolve("caches/gradle-conjure/redefined-classes")
+                .toFile();
+    }
+
+    static byte[] getOrRedefine(File cacheDirectory, byte[] originalBytes, Supplier<byte[]> redefine) {
+        Path cacheDir = cacheDirectory.toPath();
+        // A class deleted while another build reads it is just redefined again by that build
+        CacheCleanup.maybeCleanUp(cacheDir, CLASS_SUFFIX, (entry, _cutoff) -> Files.deleteIfExists(entry));
+        Path cached = cacheDir.resolve(key(originalBytes) + CLASS_SUFFIX);
+        // The file's modification time records when it was last used
+        if (CacheCleanup.markUsed(cached)) {
+            try {
+                return Files.readAllBytes(cached);
+            } catch (IOException e) {
+                log.debug("Failed to read cached redefined class {}", cached, e);
+            }
+        }
+
+        byte[] redefined = redefine.get();
+        try {
+            Files.createDirectories(cacheDir);
+            // Written next to the destination then moved, so concurrent builds never see a partially written class
+            Path temp = Files.createTempFile(cacheDir, "redefined", ".tmp");
+            try {
+                Files.write(temp, redefined);
+                Files.move(temp, cached, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.debug("Failed to cache redefined class {}", cached, e);
+        }
+        return redefined;
+    }
+
+    private static String key(byte[] originalBytes) {
+        // The rewritten bytes also depend on the ByteBuddy doing the rewrite and the class file version it targets
+        Hasher hasher = Hashing.sha256()
+                .newHasher()
+                .putInt(FORMAT_VERSION)
+                .putString(byteBuddyVersion(), StandardCharsets.UTF_8)
+                .putInt(ClassFileVersion.ofThisVm().getMinorMajorVersion());
+        GradleExecStubs.getStubMethods()
+                .forEach(stub -> hasher.putString(stub.toString(), StandardCharsets.UTF_8));
+        return hasher.putBytes(originalBytes).hash().toString();
+    }
+
+    /** The version from ByteBuddy's manifest, or where it was loaded from if the manifest was lost, e.g. by shading. */
+    private static String byteBuddyVersion() {
+        return Optional.ofNullable(ByteBuddy.class.getPackage().getImplementationVersion())
+                .orElseGet(() -> String.valueOf(
+                        ByteBuddy.class.getProtectionDomain().getCodeSource().getLocation()));
+    }
+
+    private RedefinedClassCache() {}
+}
@@ -59,6 +59,14 @@ final class ReverseEngineerJavaStartScript {
     private static final Pattern MAIN_CLASS_REGEX = Pattern.compile("-classpath [^ ]+ (?:\\\\\n)? *([a-zA-Z\\.]+)");
 
     static Optional<StartScriptInfo> maybeParseStartScript(Path script) {
+        return maybeParseStartScript(script, true);
+    }
+
+    /**
+     * Parses the start script without requiring the classpath to exist on disk when {@code checkClasspathExists} is
+     * false, e.g. because it is read straight out of the distribution archive.
+     */
+    static Optional<StartScriptInfo> maybeParseStartScript(Path script, boolean checkClasspathExists) {
         Optional<String> maybeString = readFileToString(script);
         if (!maybeString.isPresent()) {
             return Optional.empty();
@@ -67,7 +75,7 @@ final class ReverseEngineerJavaStartScript {
         Path appHome = script.getParent().getParent();
 
         if (contents.startsWith("#!/usr/bin/env") || contents.startsWith("#!/bin/sh")) {
-            return maybeParseUnixStartScript(appHome, contents);
+            return maybeParseUnixStartScript(appHome, contents, checkClasspathExists);
         } else {
             return Optional.empty();
         }
@@ -75,6 +83,11 @@ final class ReverseEngineerJavaStartScript {
 
     @VisibleForTesting
     static Optional<StartScriptInfo> maybeParseUnixStartScript(Path appHome, String contents) {
+        return maybeParseUnixStartScript(appHome, contents, true);
+    }
+
+    private static Optional<StartScriptInfo> maybeParseUnixStartScript(
+            Path appHome, String contents, boolean checkClasspathExists) {
         Matcher classpathMatcher = CLASSPATH_REGEX.matcher(contents);
         if (!classpathMatcher.find()) {
             return Optional.empty();
@@ -85,8 +98,10 @@ final class ReverseEngineerJavaStartScript {
                 .map(s -> appHome.resolve(s).toFile())
                 .collect(Collectors.toList());
 
-        for (File file : classpath) {
-            Preconditions.checkState(file.exists(), "All files must exist", SafeArg.of("file", file));
+        if (checkClasspathExists) {
+            for (File file : classpath) {
+                Preconditions.checkState(file.exists(), "All files must exist", SafeArg.of("file", file));
+            }
         }
 
         Matcher mainClass = MAIN_CLASS_REGEX.matcher(contents);
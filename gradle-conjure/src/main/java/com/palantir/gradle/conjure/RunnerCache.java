@@ -0,0 +1,209 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.palantir.gradle.conjure.ConjureRunnerResource.ConjureRunner;
+import com.palantir.gradle.conjure.ReverseEngineerJavaStartScript.StartScriptInfo;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps at most a fixed number of runners alive, evicting the least recently used, so a build using many generators
+ * doesn't hold all of their class loaders at once. Owned by {@link RunnerCacheResource}, which closes it when the build
+ * finishes so that runners never pin the plugin's class loader beyond the build. Runners are reference counted: an
+ * evicted runner is only closed once every invocation still using it has finished.
+ */
+final class RunnerCache implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(RunnerCache.class);
+
+    interface RunnerFactory {
+        ConjureRunner create(File executable, ConjureRunnerOptions options) throws IOException;
+    }
+
+    private final int maxSize;
+    private final RunnerFactory factory;
+
+    /** Access ordered, so iteration starts at the least recently used runner. Guarded by this. */
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    RunnerCache(int maxSize) {
+        this(maxSize, ConjureRunnerResource::createNewRunner);
+    }
+
+    @VisibleForTesting
+    RunnerCache(int maxSize, RunnerFactory factory) {
+        this.maxSize = maxSize;
+        this.factory = factory;
+    }
+
+    /**
+     * Returns a runner for {@code executable}, creating it if there is no cached runner under {@code key}. The
+     * returned runner must be closed once the caller is done with it.
+     */
+    synchronized ConjureRunner acquire(String key, File executable, ConjureRunnerOptions options) throws IOException {
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.isUsable()) {
+            // The generator was re-extracted with different contents, its classpath has since been deleted, or it was
+            // poisoned by an invocation which had to be abandoned
+            log.info("Discarding cached conjure runner {} as it changed or was abandoned", key);
+            entries.remove(key);
+            entry.evict();
+            entry = null;
+        }
+        if (entry == null) {
+            entry = new Entry(
+                    factory.create(executable, options),
+                    executable,
+                    FileHasher.hash(executable),
+                    classpath(executable));
+            entries.put(key, entry);
+            evictDownTo(maxSize);
+        }
+        entry.references++;
+        return new Lease(entry);
+    }
+
+    @VisibleForTesting
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /** Evicts every runner, closing those still in use once their invocations finish. */
+    @Override
+    public synchronized void close() {
+        evictDownTo(0);
+    }
+
+    private void evictDownTo(int size) {
+        Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+        while (entries.size() > size) {
+            Entry eldest = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            eldest.evict();
+        }
+    }
+
+    private static List<File> classpath(File executable) {
+        // Jars read out of the archive only need the archive to still be there
+        Optional<File> archive = ArchiveBackedDistribution.archive(executable);
+        if (archive.isPresent()) {
+            return ImmutableList.of(archive.get());
+        }
+        return ReverseEngineerJavaStartScript.maybeParseStartScript(executable.toPath())
+                .map(StartScriptInfo::classpath)
+                .orElseGet(ImmutableList::of);
+    }
+
+    private static final class Entry {
+        private final ConjureRunner runner;
+        private final File executable;
+        private final HashCode executableHash;
+        private final List<File> classpath;
+        private int references;
+        private boolean evicted;
+
+        Entry(ConjureRunner runner, File executable, HashCode executableHash, List<File> classpath) {
+            this.runner = runner;
+            this.executable = executable;
+            this.executableHash = executableHash;
+            this.classpath = classpath;
+        }
+
+        /**
+         * Whether the runner still runs what's on disk. Non-java generators have no classpath, and their workers
+         * outlive the build, so the executable itself is compared too. Hashes are remembered until the file changes.
+         */
+        boolean isUsable() {
+            return !runner.isPoisoned()
+                    && executable.isFile()
+                    && FileHasher.hash(executable).equals(executableHash)
+                    && classpath.stream().allMatch(File::exists);
+        }
+
+        void evict() {
+            evicted = true;
+            closeIfUnused();
+        }
+
+        void release() {
+            references--;
+            closeIfUnused();
+        }
+
+        private void closeIfUnused() {
+            if (evicted && references == 0) {
+                try {
+                    runner.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close evicted conjure runner", e);
+                }
+            }
+        }
+    }
+
+    private final class Lease implements ConjureRunner {
+        private final Entry entry;
+
+        Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void invoke(
+                org.gradle.api.logging.Logger logger,
+                File workingDir,
+                String failedTo,
+                List<String> unloggedArgs,
+                List<String> loggedArgs) {
+            entry.runner.invoke(logger, workingDir, failedTo, unloggedArgs, loggedArgs);
+        }
+
+        @Override
+        public boolean runsInProcess() {
+            return entry.runner.runsInProcess();
+        }
+
+        @Override
+        public boolean isPoisoned() {
+            return entry.runner.isPoisoned();
+        }
+
+        @Override
+        public void close() {
+            synchronized (RunnerCache.this) {
+                if (entry.runner.isPoisoned() && entries.values().remove(entry)) {
+                    // Evicted straight away, rather than holding on to it until it's next asked for
+                    entry.evict();
+                }
+                entry.release();
+            }
+        }
+    }
+
+}
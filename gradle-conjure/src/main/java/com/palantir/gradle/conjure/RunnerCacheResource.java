@@ -0,0 +1,47 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.palantir.gradle.conjure.RunnerCacheResource.Params;
+import java.io.Closeable;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/** Holds the {@link RunnerCache} for the current build, closing its runners when the build finishes. */
+public abstract class RunnerCacheResource implements BuildService<Params>, Closeable {
+
+    public interface Params extends BuildServiceParameters {
+
+        Property<Integer> getMaxSize();
+    }
+
+    private final RunnerCache cache;
+
+    public RunnerCacheResource() {
+        this.cache = new RunnerCache(getParameters().getMaxSize().get());
+    }
+
+    final RunnerCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public final void close() {
+        cache.close();
+    }
+}
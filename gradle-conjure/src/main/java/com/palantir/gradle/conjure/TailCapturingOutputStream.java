@@ -0,0 +1,148 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Forwards generator output line by line as it is written, keeping only the last few bytes for failure messages so
+ * that chatty generators don't hold their entire output in the daemon heap. Stderr can be forwarded separately through
+ * {@link #otherStream}, while still sharing the tail so that failure messages show both as they were interleaved.
+ */
+final class TailCapturingOutputStream extends OutputStream {
+
+    /** Lines longer than this are forwarded in pieces rather than buffered indefinitely. */
+    private static final int MAX_LINE_BYTES = 8192;
+
+    private final byte[] tail;
+    private final Lines lines;
+    /** Guarded by this. */
+    private final List<Lines> otherLines = new ArrayList<>();
+    private long written;
+
+    TailCapturingOutputStream(int tailBytes, Consumer<String> lineConsumer) {
+        this.tail = new byte[tailBytes];
+        this.lines = new Lines(lineConsumer);
+    }
+
+    @Override
+    public void write(int byteValue) {
+        write(lines, byteValue);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        write(lines, bytes, offset, length);
+    }
+
+    /** Forwards any trailing output which didn't end with a newline, including that of the {@link #otherStream}s. */
+    @Override
+    public synchronized void close() {
+        lines.flushPartialLine();
+        otherLines.forEach(Lines::flushPartialLine);
+    }
+
+    /**
+     * Another stream capturing into the same tail, which forwards its lines to {@code lineConsumer}. Closing the other
+     * stream only forwards its own trailing output.
+     */
+    synchronized OutputStream otherStream(Consumer<String> lineConsumer) {
+        Lines other = new Lines(lineConsumer);
+        otherLines.add(other);
+        return new OutputStream() {
+            @Override
+            public void write(int byteValue) {
+                TailCapturingOutputStream.this.write(other, byteValue);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) {
+                TailCapturingOutputStream.this.write(other, bytes, offset, length);
+            }
+
+            @Override
+            public void close() {
+                synchronized (TailCapturingOutputStream.this) {
+                    other.flushPartialLine();
+                }
+            }
+        };
+    }
+
+    /** The last bytes written, prefixed with how much was dropped if the output didn't fit. */
+    synchronized String tail() {
+        if (written <= tail.length) {
+            return new String(tail, 0, (int) written, StandardCharsets.UTF_8);
+        }
+        int start = (int) (written % tail.length);
+        byte[] ordered = new byte[tail.length];
+        System.arraycopy(tail, start, ordered, 0, tail.length - start);
+        System.arraycopy(tail, 0, ordered, tail.length - start, start);
+        return "... (" + (written - tail.length) + " bytes truncated)\n"
+                + new String(ordered, StandardCharsets.UTF_8);
+    }
+
+    private synchronized void write(Lines target, byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            write(target, bytes[i]);
+        }
+    }
+
+    private synchronized void write(Lines target, int byteValue) {
+        tail[(int) (written % tail.length)] = (byte) byteValue;
+        written++;
+        target.write(byteValue);
+    }
+
+    /** The line currently being written to one of the streams. Guarded by the enclosing stream. */
+    private static final class Lines {
+        private final Consumer<String> lineConsumer;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        Lines(Consumer<String> lineConsumer) {
+            this.lineConsumer = lineConsumer;
+        }
+
+        void write(int byteValue) {
+            if (byteValue == '\n') {
+                forwardLine();
+            } else {
+                line.write(byteValue);
+                if (line.size() >= MAX_LINE_BYTES) {
+                    forwardLine();
+                }
+            }
+        }
+
+        void flushPartialLine() {
+            if (line.size() > 0) {
+                forwardLine();
+            }
+        }
+
+        private void forwardLine() {
+            String text = line.toString(StandardCharsets.UTF_8);
+            line.reset();
+            lineConsumer.accept(text.endsWith("\r") ? text.substring(0, text.length() - 1) : text);
+        }
+    }
+}
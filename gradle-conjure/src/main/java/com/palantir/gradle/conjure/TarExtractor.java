@@ -0,0 +1,529 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.gradle.api.GradleException;
+
+/**
+ * Extracts a (optionally gzipped) tar in a single streaming pass, stripping its single root directory. Files which
+ * already exist with the same size and modification time are left alone, and anything else in the output directory is
+ * deleted, so re-extracting into the same directory only writes what changed. Nothing is written outside of the output
+ * directory, whether through {@code ..} or symbolic links.
+ *
+ * <p>Understands ustar, GNU long names and pax extended headers, which covers the archives produced by Gradle's
+ * distribution plugins and npm. Headers are checked against their checksum, so a corrupt archive fails with the name
+ * of the archive rather than producing garbage. bzip2 compressed tars have to be decompressed first, see
+ * {@link #isBzip2}. Files next to the root directory are skipped rather than counting as another root.
+ */
+final class TarExtractor {
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int CHECKSUM_OFFSET = 148;
+    private static final int CHECKSUM_LENGTH = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final PosixFilePermission[] PERMISSIONS_BY_BIT = PosixFilePermission.values();
+    private static final ImmutableSet<String> MARKER_FILE_NAMES =
+            ImmutableSet.of(ArchiveBackedDistribution.MARKER_FILE_NAME, ExtractionCache.SOURCE_MARKER_FILE_NAME);
+
+    static void extract(File archive, File outputDir) throws IOException {
+        extract(archive, outputDir, _path -> true);
+    }
+
+    /**
+     * Extracts the entries whose path, once the root directory is stripped, matches {@code include}. Anything else in
+     * {@code outputDir} is deleted.
+     */
+    static void extract(File archive, File outputDir, Predicate<String> include) throws IOException {
+        Path output = outputDir.toPath().toAbsolutePath().normalize();
+        Files.createDirectories(output);
+        Path realOutput = output.toRealPath();
+        Set<Path> extracted = new HashSet<>();
+        Map<Path, Entry> unresolvedHardLinks = new LinkedHashMap<>();
+
+        forEachEntry(archive, (entry, contents) -> {
+            if (!include.test(entry.path)) {
+                return;
+            }
+            Path target = output.resolve(entry.path);
+            checkInside(realOutput, target, entry, archive);
+            markExtracted(output, target, extracted);
+            if (entry.type == '5') {
+                Files.createDirectories(target);
+            } else if (entry.type == '2') {
+                checkSymbolicLink(output, target, entry, archive);
+                Files.deleteIfExists(target);
+                createParentDirectories(target);
+                Files.createSymbolicLink(target, target.getFileSystem().getPath(entry.linkName));
+            } else if (entry.type == '1') {
+                Path linked = output.resolve(entry.linkName);
+                if (extracted.contains(linked) && Files.isRegularFile(linked)) {
+                    createParentDirectories(target);
+                    Files.copy(linked, target, StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    // The file it links to wasn't included, so has to be read from the archive again
+                    unresolvedHardLinks.put(target, entry);
+                }
+            } else if (!isUnchanged(target, entry.size, entry.modified)) {
+                write(target, contents, entry);
+            }
+        });
+
+        if (!unresolvedHardLinks.isEmpty()) {
+            Set<String> linkNames = unresolvedHardLinks.values().stream()
+                    .map(entry -> entry.linkName)
+                    .collect(Collectors.toSet());
+            Map<String, byte[]> linkedFiles = readFiles(archive, linkNames::contains);
+            for (Map.Entry<Path, Entry> link : unresolvedHardLinks.entrySet()) {
+                byte[] contents = linkedFiles.get(link.getValue().linkName);
+                if (contents == null) {
+                    throw new GradleException(String.format(
+                            "Hard link '%s' in tar '%s' points to missing file '%s'",
+                            link.getValue().path, archive, link.getValue().linkName));
+                }
+                write(link.getKey(), new ByteArrayInputStream(contents), link.getValue());
+            }
+        }
+
+        deleteStale(output, extracted);
+    }
+
+    /**
+     * Reads the regular files whose path, once the root directory is stripped, matches {@code include}, without
+     * writing anything to disk.
+     */
+    static Map<String, byte[]> readFiles(File archive, Predicate<String> include) throws IOException {
+        Map<String, byte[]> files = new HashMap<>();
+        forEachEntry(archive, (entry, contents) -> {
+            if (entry.isRegularFile() && include.test(entry.path)) {
+                files.put(entry.path, ByteStreams.toByteArray(contents));
+            }
+        });
+        return files;
+    }
+
+    private interface EntryVisitor {
+        /** {@code contents} need not be fully read. */
+        void visit(Entry entry, InputStream contents) throws IOException;
+    }
+
+    private static final class Entry {
+        /** Relative to the stripped root directory. */
+        private final String path;
+
+        private final char type;
+        private final long size;
+        private final long modified;
+        private final int mode;
+
+        /** Symbolic links point wherever the archive says, hard links are relative to the stripped root directory. */
+        private final String linkName;
+
+        Entry(String path, char type, long size, long modified, int mode, String linkName) {
+            this.path = path;
+            this.type = type;
+            this.size = size;
+            this.modified = modified;
+            this.mode = mode;
+            this.linkName = linkName;
+        }
+
+        boolean isRegularFile() {
+            return type == '0' || type == '\0' || type == '7';
+        }
+    }
+
+    private static void forEachEntry(File archive, EntryVisitor visitor) throws IOException {
+        Set<String> rootDirectories = new HashSet<>();
+        try (InputStream tar = open(archive)) {
+            byte[] header = new byte[BLOCK_SIZE];
+            Map<String, String> paxHeaders = new HashMap<>();
+            String longName = null;
+            String longLinkName = null;
+            while (readBlock(tar, header, archive) && !isZeroes(header)) {
+                checkChecksum(header, archive);
+                char type = (char) header[156];
+                long size = paxHeaders.containsKey("size")
+                        ? parsePaxNumber(paxHeaders.get("size"), archive)
+                        : parseNumber(header, 124, 12, archive);
+                if (size < 0) {
+                    throw malformed(archive, "negative entry size " + size);
+                }
+
+                if (type == 'L' || type == 'K' || type == 'x') {
+                    String data = readString(tar, size, archive);
+                    if (type == 'L') {
+                        longName = data;
+                    } else if (type == 'K') {
+                        longLinkName = data;
+                    } else {
+                        paxHeaders.putAll(parsePax(data, archive));
+                    }
+                    continue;
+                }
+                if (type == 'g') {
+                    skip(tar, size);
+                    continue;
+                }
+
+                String name = paxHeaders.getOrDefault("path", longName != null ? longName : headerName(header));
+                String linkName = paxHeaders.getOrDefault(
+                        "linkpath", longLinkName != null ? longLinkName : parseString(header, 157, 100));
+                long modified = paxHeaders.containsKey("mtime")
+                        ? parsePaxNumber(paxHeaders.get("mtime"), archive)
+                        : parseNumber(header, 136, 12, archive);
+                int mode = (int) parseNumber(header, 100, 8, archive);
+                paxHeaders.clear();
+                longName = null;
+                longLinkName = null;
+
+                List<String> segments = segments(name, archive);
+                if (segments.size() == 1 && type != '5') {
+                    // Files next to the root directory have nowhere to go once it's stripped
+                    skip(tar, size);
+                    continue;
+                }
+                if (!segments.isEmpty()) {
+                    rootDirectories.add(segments.get(0));
+                }
+                if (rootDirectories.size() > 1) {
+                    throw new GradleException(String.format(
+                            "Expected exactly one root directory in tar '%s', aborting: %s",
+                            archive, rootDirectories));
+                }
+                if (segments.size() <= 1) {
+                    // The root directory itself
+                    skip(tar, size);
+                    continue;
+                }
+
+                CountingInputStream contents = new CountingInputStream(ByteStreams.limit(tar, size));
+                visitor.visit(
+                        new Entry(
+                                stripRoot(segments),
+                                type,
+                                size,
+                                modified,
+                                mode,
+                                type == '1' ? stripRoot(segments(linkName, archive)) : linkName),
+                        contents);
+                ByteStreams.exhaust(contents);
+                if (contents.getCount() != size) {
+                    throw malformed(archive, "truncated entry " + name);
+                }
+                skipPadding(tar, size);
+            }
+        } catch (EOFException e) {
+            throw malformed(archive, "truncated entry");
+        }
+
+        if (rootDirectories.isEmpty()) {
+            throw new GradleException(String.format(
+                    "Expected exactly one root directory in tar '%s', aborting: %s", archive, rootDirectories));
+        }
+    }
+
+    /**
+     * Whether {@code archive} is bzip2 compressed. The JDK can't read those, so callers decompress them first, e.g.
+     * through {@link org.gradle.api.file.ArchiveOperations#bzip2}.
+     */
+    static boolean isBzip2(File archive) throws IOException {
+        try (InputStream in = Files.newInputStream(archive.toPath())) {
+            return in.read() == 'B' && in.read() == 'Z' && in.read() == 'h';
+        }
+    }
+
+    private static InputStream open(File archive) throws IOException {
+        if (isBzip2(archive)) {
+            throw new GradleException(String.format(
+                    "Tar '%s' is bzip2 compressed and has to be decompressed before extracting it", archive));
+        }
+        InputStream in = new BufferedInputStream(Files.newInputStream(archive.toPath()), BUFFER_SIZE);
+        in.mark(2);
+        boolean gzipped = in.read() == 0x1f && in.read() == 0x8b;
+        in.reset();
+        return gzipped ? new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE) : in;
+    }
+
+    private static List<String> segments(String name, File archive) {
+        List<String> segments = Splitter.on('/').omitEmptyStrings().splitToList(name).stream()
+                .filter(segment -> !segment.equals("."))
+                .collect(Collectors.toList());
+        if (name.startsWith("/") || segments.contains("..")) {
+            throw new GradleException(String.format("Refusing to extract '%s' from tar '%s'", name, archive));
+        }
+        return segments;
+    }
+
+    private static String stripRoot(List<String> segments) {
+        return String.join("/", segments.subList(1, segments.size()));
+    }
+
+    private static void markExtracted(Path output, Path target, Set<Path> extracted) {
+        for (Path path = target; path != null && !path.equals(output); path = path.getParent()) {
+            extracted.add(path);
+        }
+    }
+
+    private static void createParentDirectories(Path target) throws IOException {
+        // Unlike createDirectories, also accepts a symbolic link to a directory
+        if (!Files.isDirectory(target.getParent())) {
+            Files.createDirectories(target.getParent());
+        }
+    }
+
+    private static void write(Path target, InputStream contents, Entry entry) throws IOException {
+        createParentDirectories(target);
+        // Replace rather than overwrite, the old file may be a hardlink into the shared extraction cache
+        Files.deleteIfExists(target);
+        try (OutputStream out = Files.newOutputStream(target)) {
+            ByteStreams.copy(contents, out);
+        }
+        Files.setLastModifiedTime(target, FileTime.fromMillis(entry.modified * 1000));
+        setMode(target, entry.mode);
+    }
+
+    /** Rejects entries which would be written outside of {@code realOutput} by following a symbolic link. */
+    private static void checkInside(Path realOutput, Path target, Entry entry, File archive) throws IOException {
+        Path existing = target.getParent();
+        while (existing != null && !Files.exists(existing)) {
+            existing = existing.getParent();
+        }
+        if (existing == null || !existing.toRealPath().startsWith(realOutput)) {
+            throw new GradleException(String.format(
+                    "Refusing to extract '%s' from tar '%s' outside of the output directory", entry.path, archive));
+        }
+    }
+
+    /** Rejects symbolic links pointing outside of {@code output}, which later entries could be written through. */
+    private static void checkSymbolicLink(Path output, Path link, Entry entry, File archive) {
+        Path linkTarget = link.getFileSystem().getPath(entry.linkName);
+        if (linkTarget.isAbsolute()
+                || linkTarget.getRoot() != null
+                || !link.getParent().resolve(linkTarget).normalize().startsWith(output)) {
+            throw new GradleException(String.format(
+                    "Refusing to extract symbolic link '%s' to '%s' from tar '%s'",
+                    entry.path, entry.linkName, archive));
+        }
+    }
+
+    private static boolean isUnchanged(Path target, long size, long modifiedSeconds) throws IOException {
+        return Files.isRegularFile(target)
+                && !Files.isSymbolicLink(target)
+                && Files.size(target) == size
+                && Files.getLastModifiedTime(target).toMillis() / 1000 == modifiedSeconds;
+    }
+
+    private static void setMode(Path target, int mode) throws IOException {
+        if (!target.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            target.toFile().setExecutable((mode & 0111) != 0);
+            return;
+        }
+        Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+        for (int i = 0; i < PERMISSIONS_BY_BIT.length; i++) {
+            if ((mode & (0400 >> i)) != 0) {
+                permissions.add(PERMISSIONS_BY_BIT[i]);
+            }
+        }
+        Files.setPosixFilePermissions(target, permissions);
+    }
+
+    /**
+     * Deletes everything in {@code output} which this extraction didn't produce, like a {@code Sync} would, apart from
+     * the markers recording which archive the directory came from.
+     */
+    private static void deleteStale(Path output, Set<Path> extracted) throws IOException {
+        Set<Path> markers = MARKER_FILE_NAMES.stream().map(output::resolve).collect(Collectors.toSet());
+        List<Path> stale = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(output)) {
+            paths.filter(path -> !path.equals(output) && !extracted.contains(path) && !markers.contains(path))
+                    .forEach(stale::add);
+        }
+        // Deepest first, so directories are empty by the time they're deleted
+        stale.sort(Comparator.comparingInt(Path::getNameCount).reversed());
+        for (Path path : stale) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static String headerName(byte[] header) {
+        String name = parseString(header, 0, 100);
+        boolean ustar = parseString(header, 257, 6).startsWith("ustar");
+        String prefix = ustar ? parseString(header, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private static Map<String, String> parsePax(String data, File archive) {
+        Map<String, String> headers = new HashMap<>();
+        // Each record is "<length> <key>=<value>\n", where length counts bytes of the whole record
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        int offset = 0;
+        while (offset < bytes.length) {
+            int space = offset;
+            while (space < bytes.length && bytes[space] != ' ') {
+                space++;
+            }
+            if (space == bytes.length) {
+                break;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(bytes, offset, space - offset, StandardCharsets.UTF_8));
+            } catch (NumberFormatException e) {
+                throw malformed(archive, "pax record without a length");
+            }
+            int valueLength = length - (space - offset) - 2;
+            if (valueLength < 0 || offset + length > bytes.length || bytes[offset + length - 1] != '\n') {
+                throw malformed(archive, "pax record with an invalid length " + length);
+            }
+            String record = new String(bytes, space + 1, valueLength, StandardCharsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals < 0) {
+                throw malformed(archive, "pax record without a value");
+            }
+            headers.put(record.substring(0, equals), record.substring(equals + 1));
+            offset += length;
+        }
+        return headers;
+    }
+
+    private static long parsePaxNumber(String value, File archive) {
+        try {
+            // mtime may have a fractional part
+            return (long) Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw malformed(archive, "pax number '" + value + "'");
+        }
+    }
+
+    /** The header checksum is the sum of its unsigned bytes, counting the checksum field itself as spaces. */
+    private static void checkChecksum(byte[] header, File archive) {
+        long expected = parseNumber(header, CHECKSUM_OFFSET, CHECKSUM_LENGTH, archive);
+        long actual = 0;
+        for (int i = 0; i < header.length; i++) {
+            boolean inChecksum = i >= CHECKSUM_OFFSET && i < CHECKSUM_OFFSET + CHECKSUM_LENGTH;
+            actual += inChecksum ? ' ' : header[i] & 0xff;
+        }
+        if (actual != expected) {
+            throw malformed(archive, "header checksum " + expected + ", expected " + actual);
+        }
+    }
+
+    private static GradleException malformed(File archive, String detail) {
+        return new GradleException(String.format("Malformed tar '%s': %s", archive, detail));
+    }
+
+    private static String parseString(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /** Parses an octal field, or a GNU base-256 one for values too large for octal. */
+    private static long parseNumber(byte[] header, int offset, int length, File archive) {
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7f;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (header[i] & 0xff);
+            }
+            return value;
+        }
+        // Octal fields may be padded with spaces as well as NULs
+        String octal = parseString(header, offset, length).trim();
+        try {
+            return octal.isEmpty() ? 0 : Long.parseLong(octal, 8);
+        } catch (NumberFormatException e) {
+            throw malformed(archive, "header field '" + octal + "' is not an octal number");
+        }
+    }
+
+    private static String readString(InputStream tar, long size, File archive) throws IOException {
+        if (size > Integer.MAX_VALUE - BLOCK_SIZE) {
+            throw malformed(archive, "extended header of " + size + " bytes");
+        }
+        byte[] bytes = new byte[Math.toIntExact(size)];
+        ByteStreams.readFully(tar, bytes);
+        skipPadding(tar, size);
+        // GNU long names are NUL terminated
+        return parseString(bytes, 0, bytes.length);
+    }
+
+    private static boolean readBlock(InputStream tar, byte[] block, File archive) throws IOException {
+        int read = ByteStreams.read(tar, block, 0, block.length);
+        if (read == 0) {
+            return false;
+        }
+        if (read != block.length) {
+            throw malformed(archive, "truncated header");
+        }
+        return true;
+    }
+
+    private static boolean isZeroes(byte[] block) {
+        for (byte value : block) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void skip(InputStream tar, long size) throws IOException {
+        ByteStreams.skipFully(tar, size);
+        skipPadding(tar, size);
+    }
+
+    private static void skipPadding(InputStream tar, long size) throws IOException {
+        long remainder = size % BLOCK_SIZE;
+        if (remainder != 0) {
+            ByteStreams.skipFully(tar, BLOCK_SIZE - remainder);
+        }
+    }
+
+    private TarExtractor() {}
+}
@@ -0,0 +1,141 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Hashes conjure YAML ignoring changes which can't affect the IR: comments, trailing whitespace and line endings. Block
+ * scalars ({@code |} and {@code >}) are kept exactly as written, and files this simple scanner can't follow, such as
+ * ones with quoted strings spanning several lines, are hashed as they are.
+ */
+final class YamlFingerprint {
+
+    private static final Splitter LINE_SPLITTER = Splitter.on('\n');
+
+    /** To match e.g. {@code docs: |}, {@code - >-} or {@code docs: |2}. */
+    private static final Pattern BLOCK_SCALAR_REGEX = Pattern.compile("(^|.*\\s)[|>][1-9+-]{0,2}$");
+
+    private static final CharMatcher QUOTE_OPENERS = CharMatcher.anyOf(":-[{,?");
+
+    static String fingerprint(File directory) {
+        Path root = directory.toPath();
+        try (Stream<Path> files = Files.walk(root)) {
+            List<Path> sorted = files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            Hasher hasher = Hashing.sha256().newHasher();
+            for (Path file : sorted) {
+                String relativePath = root.relativize(file).toString().replace(File.separatorChar, '/');
+                byte[] contents = Files.readAllBytes(file);
+                Optional<String> normalized = relativePath.endsWith(".yml")
+                        ? normalize(new String(contents, StandardCharsets.UTF_8))
+                        : Optional.empty();
+                hasher.putString(relativePath, StandardCharsets.UTF_8);
+                if (normalized.isPresent()) {
+                    hasher.putString(normalized.get(), StandardCharsets.UTF_8);
+                } else {
+                    hasher.putBytes(contents);
+                }
+            }
+            return hasher.hash().toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to fingerprint " + directory, e);
+        }
+    }
+
+    /** {@code yaml} without comments and trailing whitespace, or empty if it can't be normalized safely. */
+    @VisibleForTesting
+    static Optional<String> normalize(String yaml) {
+        List<String> normalized = new ArrayList<>();
+        int blockScalarIndent = -1;
+        for (String rawLine : LINE_SPLITTER.split(yaml)) {
+            String line = CharMatcher.is('\r').trimTrailingFrom(rawLine);
+            if (blockScalarIndent >= 0) {
+                if (line.trim().isEmpty() || indent(line) > blockScalarIndent) {
+                    normalized.add(line);
+                    continue;
+                }
+                blockScalarIndent = -1;
+            }
+
+            Optional<String> content = withoutComment(line);
+            if (!content.isPresent()) {
+                return Optional.empty();
+            }
+            String trimmed = CharMatcher.whitespace().trimTrailingFrom(content.get());
+            if (trimmed.isEmpty() && !line.trim().isEmpty()) {
+                // Only a comment
+                continue;
+            }
+            normalized.add(trimmed);
+            if (BLOCK_SCALAR_REGEX.matcher(trimmed).matches()) {
+                blockScalarIndent = indent(trimmed);
+            }
+        }
+        return Optional.of(String.join("\n", normalized));
+    }
+
+    /** {@code line} up to any comment, or empty if a quoted string doesn't end on this line. */
+    private static Optional<String> withoutComment(String line) {
+        char quote = 0;
+        int i = 0;
+        while (i < line.length()) {
+            char ch = line.charAt(i);
+            if ((quote == '"' && ch == '\\') || (quote == '\'' && line.startsWith("''", i))) {
+                // Escaped character or quote
+                i++;
+            } else if (quote != 0) {
+                if (ch == quote) {
+                    quote = 0;
+                }
+            } else if ((ch == '"' || ch == '\'') && opensQuote(line, i)) {
+                quote = ch;
+            } else if (ch == '#' && (i == 0 || Character.isWhitespace(line.charAt(i - 1)))) {
+                return Optional.of(line.substring(0, i));
+            }
+            i++;
+        }
+        return quote == 0 ? Optional.of(line) : Optional.empty();
+    }
+
+    /** Quotes only start a string at the start of a value, elsewhere they're part of a plain string. */
+    private static boolean opensQuote(String line, int index) {
+        String before = line.substring(0, index).trim();
+        return before.isEmpty() || QUOTE_OPENERS.matches(before.charAt(before.length() - 1));
+    }
+
+    private static int indent(String line) {
+        return CharMatcher.isNot(' ').indexIn(line);
+    }
+
+    private YamlFingerprint() {}
+}
@@ -163,6 +163,59 @@ class ConjureBasePluginIntegrationSpec extends IntegrationSpec {
         actual.contains('"recommended-product-dependencies" : [ ]')
     }
 
+    def 'rawIr replaces the extensions of the compileIr output without compiling again'() {
+        setup:
+        file('src/main/conjure/api.yml') << API_YML
+
+        buildFile << """
+            compileIr {
+                conjureExtensions = [key1:'stringValue']
+            }
+        """.stripIndent()
+
+        when:
+        def result = runTasksSuccessfully('rawIr')
+
+        then:
+        result.wasExecuted('compileIr')
+        result.wasExecuted('rawIr')
+        def rawIr = new File(projectDir, 'build/conjure-ir/rawIr.conjure.json').text
+        def ir = new File(projectDir, "build/conjure-ir/${moduleName}.conjure.json").text
+        !rawIr.contains('"key1"')
+        rawIr.contains('"StringExample"')
+        ir.contains('"key1" : "stringValue"')
+    }
+
+    def 'rawIr compiles separately when compileIr is configured to compile differently'() {
+        setup:
+        file('src/main/conjure/api.yml') << API_YML
+
+        buildFile << """
+            compileIr {
+                canonical = true
+            }
+        """.stripIndent()
+
+        when:
+        def result = runTasksSuccessfully('rawIr')
+
+        then:
+        !result.wasExecuted('compileIr')
+        new File(projectDir, 'build/conjure-ir/rawIr.conjure.json').text.contains('"StringExample"')
+    }
+
+    def 'compileIr compiles directly without running rawIr'() {
+        setup:
+        file('src/main/conjure/api.yml') << API_YML
+
+        when:
+        def result = runTasksSuccessfully('compileIr')
+
+        then:
+        !result.wasExecuted('rawIr')
+        new File(projectDir, "build/conjure-ir/${moduleName}.conjure.json").text.contains('"StringExample"')
+    }
+
     def 'renders extensions from file'() {
         setup:
         file('src/main/conjure/api.yml') << API_YML
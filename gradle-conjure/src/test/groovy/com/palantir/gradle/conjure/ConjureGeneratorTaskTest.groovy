@@ -16,6 +16,7 @@
 
 package com.palantir.gradle.conjure
 
+import groovy.io.FileType
 import nebula.test.IntegrationSpec
 import nebula.test.functional.ExecutionResult
 
@@ -102,6 +103,66 @@ class ConjureGeneratorTaskTest extends IntegrationSpec {
         fileExists('api/api-objects/build/generated/sources/conjure-objects/java/main/test/test/api/NewStringExample.java')
     }
 
+    def 'selective regeneration generates the same files as a full regeneration'() {
+        setup:
+        file('gradle.properties') << '\ncom.palantir.conjure.selective_java_regeneration=true\n'
+        def full = '-Pcom.palantir.conjure.selective_java_regeneration=false'
+        file('api/src/main/conjure/api.yml').text = '''
+        types:
+          definitions:
+            default-package: test.test.api
+            objects:
+              StringExample:
+                fields:
+                  string: string
+              OtherExample:
+                fields:
+                  other: StringExample
+              RemovedExample:
+                fields:
+                  removed: string
+        '''.stripIndent()
+        runTasksSuccessfully(':api:compileConjureObjects')
+
+        when: 'a field is added'
+        file('api/src/main/conjure/api.yml').text = file('api/src/main/conjure/api.yml').text
+                .replace('string: string', 'string: string\n          number: integer')
+        runTasksSuccessfully(':api:compileConjureObjects')
+        def selectiveAfterChange = generatedSources()
+        runTasksSuccessfully(':api:compileConjureObjects', full)
+
+        then:
+        selectiveAfterChange['test/test/api/StringExample.java'].contains('number')
+        selectiveAfterChange == generatedSources()
+
+        when: 'a type is removed'
+        // Reruns as the mode changed, recording what was generated for the next run to compare against
+        runTasksSuccessfully(':api:compileConjureObjects')
+        file('api/src/main/conjure/api.yml').text = file('api/src/main/conjure/api.yml').text
+                .replaceAll(/(?s)\s*RemovedExample:.*/, '\n')
+        runTasksSuccessfully(':api:compileConjureObjects')
+        def selectiveAfterRemoval = generatedSources()
+        runTasksSuccessfully(':api:compileConjureObjects', full)
+
+        then:
+        !selectiveAfterRemoval.containsKey('test/test/api/RemovedExample.java')
+        selectiveAfterRemoval == generatedSources()
+
+        when: 'a type is renamed'
+        // Reruns as the mode changed, recording what was generated for the next run to compare against
+        runTasksSuccessfully(':api:compileConjureObjects')
+        file('api/src/main/conjure/api.yml').text = file('api/src/main/conjure/api.yml').text
+                .replace('StringExample', 'RenamedExample')
+        runTasksSuccessfully(':api:compileConjureObjects')
+        def selectiveAfterRename = generatedSources()
+        runTasksSuccessfully(':api:compileConjureObjects', full)
+
+        then:
+        !selectiveAfterRename.containsKey('test/test/api/StringExample.java')
+        selectiveAfterRename.containsKey('test/test/api/RenamedExample.java')
+        selectiveAfterRename == generatedSources()
+    }
+
     def 'when a file has errors the error is reported in the exception'() {
         when:
         file('api/src/main/conjure/bad.yml').text = '''
@@ -113,4 +174,14 @@ class ConjureGeneratorTaskTest extends IntegrationSpec {
         then:
         executionResult.getStandardError().contains('Cannot construct instance of')
     }
+
+    /** Generated java sources by their path relative to the source root. */
+    private Map<String, String> generatedSources() {
+        def root = file('api/api-objects/build/generated/sources/conjure-objects/java/main').toPath()
+        Map<String, String> sources = [:]
+        root.toFile().eachFileRecurse(FileType.FILES) {
+            sources[root.relativize(it.toPath()).toString().replace(File.separatorChar, '/' as char)] = it.text
+        }
+        return sources
+    }
 }
@@ -19,6 +19,7 @@ package com.palantir.gradle.conjure
 import com.google.common.io.ByteStreams
 import com.palantir.gradle.dist.RecommendedProductDependencies
 import com.palantir.gradle.dist.RecommendedProductDependenciesPlugin
+import groovy.io.FileType
 
 import java.nio.charset.StandardCharsets
 import java.util.jar.Manifest
@@ -86,6 +87,30 @@ class ConjureJavaLocalCodegenPluginIntegrationSpec extends IntegrationSpec {
         result.standardOutput.contains "with args: [--jetbrainsContractAnnotations, --objects, --packagePrefix=test.groupwithdashes]"
     }
 
+    def 'single session generates the same files as one invocation per flag'() {
+        buildFile << """
+        conjure {
+            java {
+                addFlag "objects"
+                addFlag "jersey"
+                addFlag "undertow"
+            }
+        }
+        """.stripIndent()
+        addSubproject("conjure-api")
+
+        when:
+        runTasksSuccessfully(":conjure-api:generateConjure")
+        def perFlag = generatedSources()
+        def result = runTasksSuccessfully(
+                ":conjure-api:generateConjure", "--rerun-tasks", "-Pcom.palantir.conjure.java_single_session=true")
+
+        then:
+        result.standardOutput.contains "with args: [--jersey, --jetbrainsContractAnnotations, --objects, --packagePrefix=test.group, --undertow]"
+        !perFlag.isEmpty()
+        generatedSources() == perFlag
+    }
+
     def "respects user provided packagePrefix"() {
         buildFile << """
         conjure {
@@ -238,4 +263,14 @@ class ConjureJavaLocalCodegenPluginIntegrationSpec extends IntegrationSpec {
             return new String(ByteStreams.toByteArray(zf.getInputStream(manifestEntry)), StandardCharsets.UTF_8)
         }
     }
+
+    /** Generated java sources by their path relative to the source root. */
+    private Map<String, String> generatedSources() {
+        def root = file('conjure-api/build/generated/sources/conjure-java-local-java/java/main').toPath()
+        Map<String, String> sources = [:]
+        root.toFile().eachFileRecurse(FileType.FILES) {
+            sources[root.relativize(it.toPath()).toString().replace(File.separatorChar, '/' as char)] = it.text
+        }
+        return sources
+    }
 }
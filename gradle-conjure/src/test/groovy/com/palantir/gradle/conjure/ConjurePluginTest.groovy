@@ -248,23 +248,23 @@ class ConjurePluginTest extends IntegrationSpec {
         'peer'     | ''
     }
 
-    def 'compileConjure creates build/conjure for root project'() {
+    def 'compileConjure compiles straight from src/main/conjure'() {
         when:
-        runTasksSuccessfully('compileConjure')
+        ExecutionResult result = runTasksSuccessfully('compileConjure')
 
         then:
-        fileExists('api/build/conjure')
+        result.wasExecuted(':api:compileIr')
+        !fileExists('api/build/conjure')
     }
 
-    def 'clean cleans up build/conjure for root project'() {
+    def 'compileIr is up to date when only files other than conjure definitions change'() {
         when:
-        runTasksSuccessfully('compileConjure')
-        ExecutionResult result = runTasksSuccessfully('clean')
+        runTasksSuccessfully('compileIr')
+        createFile('api/src/main/conjure/README.md') << 'Notes on the API'
+        ExecutionResult result = runTasksSuccessfully('compileIr')
 
         then:
-        result.wasExecuted(':api:cleanCopyConjureSourcesIntoBuild')
-
-        !fileExists('api/build/conjure')
+        result.wasUpToDate(':api:compileIr')
     }
 
     def 'compileConjure does not run tasks if up to date: #location'() {
@@ -281,7 +281,6 @@ class ConjurePluginTest extends IntegrationSpec {
         result.wasUpToDate(':api:compileConjureTypeScript')
         result.wasUpToDate(':api:compileConjureUndertow')
         result.wasUpToDate(':api:compileConjureDialogue')
-        result.wasUpToDate(':api:copyConjureSourcesIntoBuild')
         result.wasUpToDate(':api:compileIr')
 
         where:
@@ -324,7 +323,6 @@ class ConjurePluginTest extends IntegrationSpec {
         result.wasExecuted(':api:compileConjureTypeScript')
         result.wasExecuted(':api:compileConjureUndertow')
         result.wasExecuted(':api:compileConjureDialogue')
-        result.wasExecuted(':api:copyConjureSourcesIntoBuild')
 
         where:
         location   | prefix
@@ -332,7 +330,7 @@ class ConjurePluginTest extends IntegrationSpec {
         'peer'     | ''
     }
 
-    def 'conjure files which no longer exist are removed from build dir'() {
+    def 'conjure files which no longer exist are removed from the IR'() {
         when:
         String path = 'api/src/main/conjure/todelete.yml'
         createFile(path) << '''
@@ -344,15 +342,15 @@ class ConjurePluginTest extends IntegrationSpec {
                 union:
                   number: integer
         '''.stripIndent()
-        runTasksSuccessfully("copyConjureSourcesIntoBuild")
+        runTasksSuccessfully("compileIr")
         file(path).delete()
-        runTasksSuccessfully("copyConjureSourcesIntoBuild")
+        runTasksSuccessfully("compileIr")
 
         then:
-        !fileExists('api/build/conjure/todelete.yml')
+        !file('api/build/conjure-ir/api.conjure.json').text.contains('UnionTypeExample')
     }
 
-    def 'copies conjure imports into build directory and provides imports to conjure compiler: #location'() {
+    def 'provides conjure imports to conjure compiler: #location'() {
         setup:
         updateSettings(prefix)
 
@@ -396,9 +394,6 @@ class ConjurePluginTest extends IntegrationSpec {
         result.wasExecuted(':api:compileConjureObjects')
         result.wasExecuted(":api:compileIr")
 
-        fileExists('api/build/conjure/internal-import.yml')
-        fileExists('api/build/conjure/conjure.yml')
-
         // java
         file(prefixPath(prefix, 'api-jersey/build/generated/sources/conjure-jersey/java/main/test/api/service/TestServiceFoo2.java')).text.contains(
                 'import test.api.internal.InternalImport;')
@@ -25,8 +25,7 @@ class ConjurePublishTest extends IntegrationSpec {
     private static final String GROUP_ID = 'com.palantir.test-palantir'
     private static final String ARTIFACT_ID = 'ir-publish-test'
 
-    def 'simple example'() {
-        setup:
+    def setup() {
         buildFile << """
             repositories {
                 mavenCentral()
@@ -76,15 +75,37 @@ class ConjurePublishTest extends IntegrationSpec {
                   object: StringExample
                 returns: StringExample
         '''.stripIndent()
+    }
 
+    def 'simple example'() {
         when:
         ExecutionResult result = runTasksSuccessfully('compileIr', 'publishConjurePublicationToTestRepoRepository')
 
         then:
         result.success
+        !result.wasExecuted('compressIr')
 
         // check for just the distribution and no JAR files
+        fileExists("${versionDirectory()}/${ARTIFACT_ID}-${VERSION}.conjure.json")
+        fileExists("${versionDirectory()}/${ARTIFACT_ID}-${VERSION}-conjure-metadata.json")
+        !fileExists("${versionDirectory()}/${ARTIFACT_ID}-${VERSION}.conjure.json.gz")
+    }
+
+    def 'publishes a compressed ir when enabled'() {
+        setup:
+        file('gradle.properties') << 'com.palantir.conjure.compressed_ir=true\n'
+
+        when:
+        ExecutionResult result = runTasksSuccessfully('publishConjurePublicationToTestRepoRepository')
+
+        then:
+        result.wasExecuted('compressIr')
+        fileExists("${versionDirectory()}/${ARTIFACT_ID}-${VERSION}.conjure.json")
+        fileExists("${versionDirectory()}/${ARTIFACT_ID}-${VERSION}.conjure.json.gz")
+    }
+
+    private static String versionDirectory() {
         def groupDirectory = GROUP_ID.replaceAll('\\.', '/')
-        fileExists("build/maven/${groupDirectory}/${ARTIFACT_ID}/${VERSION}/${ARTIFACT_ID}-${VERSION}.conjure.json")
+        return "build/maven/${groupDirectory}/${ARTIFACT_ID}/${VERSION}"
     }
 }
@@ -18,6 +18,7 @@ package com.palantir.gradle.conjure
 
 import com.palantir.gradle.conjure.api.ConjureProductDependenciesExtension
 import com.palantir.gradle.dist.RecommendedProductDependencies
+import groovy.json.JsonSlurper
 
 import java.util.jar.Attributes
 import java.util.jar.Manifest
@@ -130,17 +131,17 @@ class ConjureServiceDependencyTest extends IntegrationSpec {
         }
         '''.stripIndent()
         when:
-        def result = runTasksSuccessfully(':api:compileConjure')
+        runTasksSuccessfully(':api:compileConjure')
 
         then:
-        result.standardOutput.find('with args: \\[.*, --extensions, '
-                + '\\{"recommended-product-dependencies":\\[\\{'
-                + '"product-group":"com.palantir.conjure",'
-                + '"product-name":"conjure",'
-                + '"minimum-version":"1.2.0",'
-                + '"maximum-version":"2.x.x",'
-                + '"recommended-version":"1.2.0",'
-                + '"optional":false\\}]\\}]') != null
+        def ir = new JsonSlurper().parse(file('api/build/conjure-ir/api.conjure.json'))
+        ir.extensions['recommended-product-dependencies'] == [[
+                'product-group': 'com.palantir.conjure',
+                'product-name': 'conjure',
+                'minimum-version': '1.2.0',
+                'maximum-version': '2.x.x',
+                'recommended-version': '1.2.0',
+                'optional': false]]
     }
 
     def "correctly passes product dependencies to generators"() {
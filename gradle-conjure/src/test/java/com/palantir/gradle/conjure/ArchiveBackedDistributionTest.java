@@ -0,0 +1,149 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ArchiveBackedDistributionTest {
+
+    private static final String CLASS_FILE = Generator.class.getName().replace('.', '/') + ".class";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void defines_classes_with_their_jars_code_source_and_manifest() throws Exception {
+        File archive = TarExtractorTest.tgz(
+                tempDir.resolve("gen-1.0.0.tgz"),
+                TarExtractorTest.entry("gen-1.0.0/bin/gen", "#!/bin/sh"),
+                TarExtractorTest.entry("gen-1.0.0/lib/gen.jar", jar("1.2.3", true)));
+
+        try (ChildFirstUrlClassLoader classLoader = classLoader(archive, "lib/gen.jar")) {
+            Class<?> loaded = classLoader.loadClass(Generator.class.getName());
+
+            assertThat(loaded.getClassLoader()).isSameAs(classLoader);
+            assertThat(loaded.getPackage().getImplementationVersion()).isEqualTo("1.2.3");
+            assertThat(loaded.getProtectionDomain().getCodeSource().getLocation().getPath())
+                    .isEqualTo("/lib/gen.jar");
+        }
+    }
+
+    @Test
+    public void reads_resources_from_the_first_jar_containing_them() throws Exception {
+        File archive = TarExtractorTest.tgz(
+                tempDir.resolve("gen-1.0.0.tgz"),
+                TarExtractorTest.entry("gen-1.0.0/bin/gen", "#!/bin/sh"),
+                TarExtractorTest.entry("gen-1.0.0/lib/gen.jar", jar("1.2.3", true)),
+                TarExtractorTest.entry("gen-1.0.0/lib/other.jar", jar("4.5.6", false)));
+
+        try (ChildFirstUrlClassLoader classLoader = classLoader(archive, "lib/gen.jar", "lib/other.jar")) {
+            assertThat(read(classLoader.findResource("version.txt"))).isEqualTo("1.2.3");
+            assertThat(Collections.list(classLoader.findResources("version.txt")))
+                    .extracting(ArchiveBackedDistributionTest::read)
+                    .containsExactly("1.2.3", "4.5.6");
+        }
+    }
+
+    @Test
+    public void fails_if_a_classpath_jar_is_missing_from_the_archive() throws IOException {
+        File archive = TarExtractorTest.tgz(
+                tempDir.resolve("gen-1.0.0.tgz"), TarExtractorTest.entry("gen-1.0.0/bin/gen", "#!/bin/sh"));
+
+        assertThatThrownBy(() -> classLoader(archive, "lib/gen.jar"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("lib/gen.jar is missing from");
+    }
+
+    private ChildFirstUrlClassLoader classLoader(File archive, String... jars) throws IOException {
+        Path appHome = tempDir.resolve("gen-1.0.0");
+        ImmutableStartScriptInfo.Builder info = ImmutableStartScriptInfo.builder().mainClass(Generator.class.getName());
+        for (String jar : jars) {
+            info.addClasspath(appHome.resolve(jar).toFile());
+        }
+        return ArchiveBackedDistribution.classLoader(
+                archive, appHome.resolve("bin/gen").toFile(), info.build(), getClass().getClassLoader());
+    }
+
+    /**
+     * A jar containing {@link Generator} and a {@code version.txt} resource, with its manifest giving {@code version}.
+     * Entries are stored rather than deflated if {@code deflated} is false.
+     */
+    private static byte[] jar(String version, boolean deflated) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.IMPLEMENTATION_VERSION, version);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JarOutputStream jar = new JarOutputStream(bytes, manifest)) {
+            put(jar, CLASS_FILE, classBytes(), deflated);
+            put(jar, "version.txt", version.getBytes(StandardCharsets.UTF_8), deflated);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void put(JarOutputStream jar, String name, byte[] contents, boolean deflated) throws IOException {
+        JarEntry entry = new JarEntry(name);
+        if (!deflated) {
+            CRC32 crc = new CRC32();
+            crc.update(contents);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(contents.length);
+            entry.setCrc(crc.getValue());
+        }
+        jar.putNextEntry(entry);
+        jar.write(contents);
+        jar.closeEntry();
+    }
+
+    private static byte[] classBytes() throws IOException {
+        try (InputStream stream = Generator.class.getResourceAsStream("/" + CLASS_FILE)) {
+            return ByteStreams.toByteArray(stream);
+        }
+    }
+
+    private static String read(URL url) {
+        try (InputStream stream = url.openStream()) {
+            return new String(ByteStreams.toByteArray(stream), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Loaded out of the archive by the tests. */
+    public static final class Generator {
+        private Generator() {}
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+public class CancellableInvocationTest {
+
+    @Test
+    public void returns_the_result_of_the_invocation() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        String result =
+                CancellableInvocation.run("generate", "gen", Optional.empty(), () -> "done", () -> cancelled.set(true));
+
+        assertThat(result).isEqualTo("done");
+        assertThat(cancelled.get()).isFalse();
+    }
+
+    @Test
+    public void interrupting_the_calling_thread_interrupts_the_invocation() throws InterruptedException {
+        // Gradle cancels a build by interrupting the threads running its work actions
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                CancellableInvocation.run(
+                        "generate",
+                        "gen",
+                        Optional.empty(),
+                        () -> {
+                            started.countDown();
+                            try {
+                                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                            } catch (InterruptedException e) {
+                                interrupted.countDown();
+                            }
+                            return null;
+                        },
+                        () -> cancelled.set(true));
+            } catch (RuntimeException e) {
+                thrown.set(e);
+            }
+        });
+        caller.start();
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        caller.interrupt();
+        caller.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertThat(caller.isAlive()).isFalse();
+        assertThat(interrupted.getCount()).isZero();
+        assertThat(cancelled.get()).isTrue();
+        assertThat(thrown.get()).hasMessage("Failed to generate. The command 'gen' was cancelled");
+    }
+
+    @Test
+    public void times_out_and_interrupts_the_invocation() {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        assertThatThrownBy(() -> CancellableInvocation.run(
+                        "generate",
+                        "gen",
+                        Optional.of(Duration.ofMillis(100)),
+                        () -> {
+                            try {
+                                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                            } catch (InterruptedException e) {
+                                interrupted.countDown();
+                            }
+                            return null;
+                        },
+                        () -> cancelled.set(true)))
+                .hasMessage("Failed to generate. The command 'gen' timed out after PT0.1S");
+        assertThat(interrupted.getCount()).isZero();
+        assertThat(cancelled.get()).isTrue();
+    }
+}
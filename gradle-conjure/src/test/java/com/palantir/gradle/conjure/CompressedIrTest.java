@@ -0,0 +1,46 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CompressedIrTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void decompresses_to_the_original_ir() throws IOException {
+        String ir = "{\"version\":1,\"types\":[],\"errors\":[],\"services\":[]}".repeat(100);
+        File irFile = Files.writeString(tempDir.resolve("api.conjure.json"), ir).toFile();
+        File compressed = tempDir.resolve("api.conjure.json.gz").toFile();
+        File decompressed = tempDir.resolve("decompressed.conjure.json").toFile();
+
+        CompressedIr.compress(irFile, compressed);
+        CompressedIr.decompress(compressed, decompressed);
+
+        assertThat(compressed.length()).isLessThan(irFile.length());
+        assertThat(decompressed).hasContent(ir);
+    }
+}
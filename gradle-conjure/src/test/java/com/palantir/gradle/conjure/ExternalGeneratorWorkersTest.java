@@ -0,0 +1,189 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisabledOnOs(OS.WINDOWS)
+public class ExternalGeneratorWorkersTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ExternalGeneratorWorkers workers;
+
+    @AfterEach
+    public void after() {
+        if (workers != null) {
+            workers.close();
+        }
+    }
+
+    @Test
+    public void reuses_a_worker_for_invocations_in_the_same_directory() throws IOException {
+        workers = new ExternalGeneratorWorkers(fakeWorker(), Optional.empty());
+        File dir = directory("a");
+
+        String first = invoke(dir, "generate");
+        String second = invoke(dir, "generate");
+
+        assertThat(first).startsWith("ran [generate] in a");
+        assertThat(second).isEqualTo(first);
+        assertThat(workers.idleWorkers()).isEqualTo(1);
+    }
+
+    @Test
+    public void keeps_at_most_the_maximum_number_of_idle_workers() throws IOException {
+        workers = new ExternalGeneratorWorkers(fakeWorker(), Optional.empty(), 1);
+        File dirA = directory("a");
+        File dirB = directory("b");
+
+        String first = invoke(dirA, "generate");
+        assertThat(invoke(dirB, "generate")).startsWith("ran [generate] in b");
+        assertThat(workers.idleWorkers()).isEqualTo(1);
+
+        assertThat(invoke(dirA, "generate")).isEqualTo(first);
+    }
+
+    @Test
+    public void returns_the_exit_code_of_the_generator() throws IOException {
+        workers = new ExternalGeneratorWorkers(fakeWorker(), Optional.empty());
+
+        assertThat(workers.invoke("generate", directory("a"), ImmutableList.of("fail"), sink(), sink()))
+                .hasValue(1);
+    }
+
+    @Test
+    public void returns_empty_when_the_worker_dies_mid_request_and_replaces_it() throws IOException {
+        workers = new ExternalGeneratorWorkers(fakeWorker(), Optional.empty());
+        File dir = directory("a");
+
+        assertThat(workers.invoke("generate", dir, ImmutableList.of("die"), sink(), sink()))
+                .isEmpty();
+        assertThat(workers.idleWorkers()).isZero();
+        assertThat(invoke(dir, "generate")).startsWith("ran [generate] in a");
+    }
+
+    @Test
+    public void returns_empty_for_generators_without_worker_support() throws IOException {
+        Path script = tempDir.resolve("not-a-worker");
+        Files.writeString(script, "#!/bin/sh\necho 'unknown option' >&2\nexit 1\n");
+        script.toFile().setExecutable(true);
+        workers = new ExternalGeneratorWorkers(script.toFile(), Optional.empty());
+        File dir = directory("a");
+
+        assertThat(workers.invoke("generate", dir, ImmutableList.of("generate"), sink(), sink()))
+                .isEmpty();
+        assertThat(workers.invoke("generate", dir, ImmutableList.of("generate"), sink(), sink()))
+                .isEmpty();
+        assertThat(workers.idleWorkers()).isZero();
+    }
+
+    private String invoke(File workingDir, String... args) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertThat(workers.invoke("generate", workingDir, ImmutableList.copyOf(args), output, sink()))
+                .hasValue(0);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private File directory(String name) throws IOException {
+        return Files.createDirectories(tempDir.resolve(name)).toFile();
+    }
+
+    private File fakeWorker() throws IOException {
+        Path script = tempDir.resolve("fake-worker");
+        Files.writeString(
+                script,
+                String.format(
+                        "#!/bin/sh\nexec '%s' -cp '%s' '%s' \"$@\"\n",
+                        ProcessHandle.current().info().command().orElseThrow(),
+                        System.getProperty("java.class.path"),
+                        FakeWorker.class.getName()));
+        script.toFile().setExecutable(true);
+        return script.toFile();
+    }
+
+    private static ByteArrayOutputStream sink() {
+        return new ByteArrayOutputStream();
+    }
+
+    /**
+     * Speaks the worker protocol, responding with its pid and working directory. Exits with 1 if asked to {@code fail},
+     * and dies without responding if asked to {@code die}.
+     */
+    public static final class FakeWorker {
+        public static void main(String[] args) throws IOException {
+            if (args.length != 1 || !args[0].equals(ExternalGeneratorWorkers.WORKER_FLAG)) {
+                System.exit(2);
+            }
+            DataInputStream requests = new DataInputStream(new BufferedInputStream(System.in));
+            DataOutputStream responses = new DataOutputStream(new BufferedOutputStream(System.out));
+            responses.writeInt(0x434e4a57);
+            responses.writeInt(1);
+            responses.flush();
+            while (true) {
+                List<String> request = new ArrayList<>();
+                try {
+                    int count = requests.readInt();
+                    for (int i = 0; i < count; i++) {
+                        byte[] arg = new byte[requests.readInt()];
+                        requests.readFully(arg);
+                        request.add(new String(arg, StandardCharsets.UTF_8));
+                    }
+                } catch (EOFException e) {
+                    return;
+                }
+                if (request.contains("die")) {
+                    System.exit(3);
+                }
+                byte[] output = String.format(
+                                "ran %s in %s as %d\n",
+                                request,
+                                new File("").getAbsoluteFile().getName(),
+                                ProcessHandle.current().pid())
+                        .getBytes(StandardCharsets.UTF_8);
+                responses.writeInt(request.contains("fail") ? 1 : 0);
+                responses.writeInt(output.length);
+                responses.write(output);
+                responses.flush();
+            }
+        }
+
+        private FakeWorker() {}
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.time.Duration;
+import java.time.Instant;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ExtractionCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void projects_extracting_the_same_archive_share_an_executable_in_the_cache() throws IOException {
+        File archive = TarExtractorTest.tgz(
+                tempDir.resolve("gen-1.0.0.tgz"), TarExtractorTest.entry("gen-1.0.0/bin/gen", "#!/bin/sh"));
+        File cache = tempDir.resolve("cache").toFile();
+        File projectA = tempDir.resolve("a/build/gen").toFile();
+        File projectB = tempDir.resolve("b/build/gen").toFile();
+        ExtractionCache.extract(archive, projectA);
+        ExtractionCache.extract(archive, projectB);
+
+        File shared = ExtractionCache.sharedExecutable(new File(projectA, "bin/gen"), cache);
+
+        assertThat(ExtractionCache.sharedExecutable(new File(projectB, "bin/gen"), cache))
+                .isEqualTo(shared);
+        assertThat(shared.toPath()).startsWith(cache.toPath()).hasContent("#!/bin/sh");
+        // Cleaning a project doesn't affect runners created from the shared executable
+        FileUtils.deleteDirectory(projectA);
+        assertThat(shared).exists();
+    }
+
+    @Test
+    public void extraction_free_distributions_only_share_their_start_scripts() throws IOException {
+        File archive = TarExtractorTest.tgz(
+                tempDir.resolve("gen-1.0.0.tgz"),
+                TarExtractorTest.entry("gen-1.0.0/bin/gen", "#!/bin/sh"),
+                TarExtractorTest.entry("gen-1.0.0/lib/gen.jar", "jar"));
+        File cache = tempDir.resolve("cache").toFile();
+        File project = tempDir.resolve("a/build/gen").toFile();
+        TarExtractor.extract(archive, project, path -> path.startsWith("bin/"));
+        ArchiveBackedDistribution.writeMarker(project, archive);
+
+        File shared = ExtractionCache.sharedExecutable(new File(project, "bin/gen"), cache);
+
+        assertThat(shared.toPath()).startsWith(cache.toPath()).hasContent("#!/bin/sh");
+        assertThat(ArchiveBackedDistribution.archive(shared)).hasValue(archive);
+        assertThat(new File(shared.getParentFile().getParentFile(), "lib")).doesNotExist();
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    public void links_read_only_files_so_projects_cannot_modify_the_cache() throws IOException {
+        File archive = TarExtractorTest.tgz(
+                tempDir.resolve("gen-1.0.0.tgz"), TarExtractorTest.entry("gen-1.0.0/bin/gen", "#!/bin/sh"));
+        File cached = ExtractionCache.getOrExtract(
+                tempDir.resolve("cache").toFile(), archive, dir -> ExtractionCache.extract(archive, dir));
+        File project = tempDir.resolve("project/build/gen").toFile();
+
+        ExtractionCache.link(cached, project);
+
+        assertThat(Files.getPosixFilePermissions(project.toPath().resolve("bin/gen")))
+                .contains(PosixFilePermission.OWNER_EXECUTE)
+                .doesNotContain(PosixFilePermission.OWNER_WRITE);
+        assertThat(Files.getPosixFilePermissions(cached.toPath().resolve("bin/gen")))
+                .doesNotContain(PosixFilePermission.OWNER_WRITE);
+    }
+
+    @Test
+    public void deletes_extractions_which_have_not_been_used_for_a_month() throws IOException {
+        File cache = tempDir.resolve("cache").toFile();
+        File oldArchive = TarExtractorTest.tgz(
+                tempDir.resolve("gen-1.0.0.tgz"), TarExtractorTest.entry("gen-1.0.0/bin/gen", "old"));
+        File newArchive = TarExtractorTest.tgz(
+                tempDir.resolve("gen-2.0.0.tgz"), TarExtractorTest.entry("gen-2.0.0/bin/gen", "new"));
+        File oldExtraction =
+                ExtractionCache.getOrExtract(cache, oldArchive, dir -> ExtractionCache.extract(oldArchive, dir));
+        File recentExtraction =
+                ExtractionCache.getOrExtract(cache, newArchive, dir -> ExtractionCache.extract(newArchive, dir));
+        setLastUsed(cache, oldExtraction, Duration.ofDays(31));
+        setLastUsed(cache, recentExtraction, Duration.ofDays(29));
+        // Pretend the last clean up happened yesterday
+        Files.setLastModifiedTime(
+                cache.toPath().resolve(".last-cleanup"), FileTime.from(Instant.now().minus(Duration.ofDays(1))));
+
+        File extracted = ExtractionCache.getOrExtract(cache, newArchive, _dir -> {
+            throw new AssertionError("Should not extract again");
+        });
+
+        assertThat(extracted).isEqualTo(recentExtraction);
+        assertThat(recentExtraction.toPath().resolve("bin/gen")).hasContent("new");
+        assertThat(oldExtraction).doesNotExist();
+        assertThat(new File(cache, oldExtraction.getName() + ".complete")).doesNotExist();
+    }
+
+    @Test
+    public void executables_of_unknown_origin_are_not_shared() throws IOException {
+        Path bin = Files.createDirectories(tempDir.resolve("dist/bin"));
+        File executable = Files.writeString(bin.resolve("gen"), "#!/bin/sh").toFile();
+
+        assertThat(ExtractionCache.sharedExecutable(executable, tempDir.resolve("cache").toFile()))
+                .isEqualTo(executable);
+    }
+
+    private static void setLastUsed(File cache, File extraction, Duration ago) throws IOException {
+        Files.setLastModifiedTime(
+                cache.toPath().resolve(extraction.getName() + ".complete"),
+                FileTime.from(Instant.now().minus(ago)));
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileHasherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void same_contents_in_different_directories_hash_equally() throws IOException {
+        assertThat(FileHasher.hash(file("project-a", "contents")))
+                .isEqualTo(FileHasher.hash(file("project-b", "contents")));
+    }
+
+    @Test
+    public void different_contents_hash_differently() throws IOException {
+        assertThat(FileHasher.hash(file("project-a", "contents")))
+                .isNotEqualTo(FileHasher.hash(file("project-b", "other contents")));
+    }
+
+    private File file(String dir, String contents) throws IOException {
+        Path lib = Files.createDirectories(tempDir.resolve(dir).resolve("lib"));
+        return Files.write(lib.resolve("conjure-1.0.0.jar"), contents.getBytes(StandardCharsets.UTF_8))
+                .toFile();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class GradleExecStubsTest {
+
+    private PrintStream originalOut;
+    private PrintStream originalErr;
+
+    @BeforeEach
+    public void before() {
+        originalOut = System.out;
+        originalErr = System.err;
+    }
+
+    @AfterEach
+    public void after() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    public void captures_stdout_and_stderr_separately() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        GradleExecStubs.captureOutput(out, err);
+        try {
+            Helper.print("separately");
+        } finally {
+            GradleExecStubs.stopCapturingOutput();
+        }
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("out: separately" + System.lineSeparator());
+        assertThat(err.toString(StandardCharsets.UTF_8)).isEqualTo("err: separately" + System.lineSeparator());
+    }
+
+    @Test
+    public void captures_output_printed_by_any_class_of_the_invocation() {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        GradleExecStubs.captureOutput(captured, captured);
+        try {
+            Helper.print("from helper");
+        } finally {
+            GradleExecStubs.stopCapturingOutput();
+        }
+        Helper.print("after invocation");
+
+        assertThat(captured.toString(StandardCharsets.UTF_8))
+                .contains("out: from helper", "err: from helper")
+                .doesNotContain("after invocation");
+    }
+
+    @Test
+    public void restores_the_original_streams_once_no_thread_is_capturing() {
+        GradleExecStubs.captureOutput(new ByteArrayOutputStream(), new ByteArrayOutputStream());
+        try {
+            assertThat(System.out).isNotSameAs(originalOut);
+        } finally {
+            GradleExecStubs.stopCapturingOutput();
+        }
+
+        assertThat(System.out).isSameAs(originalOut);
+        assertThat(System.err).isSameAs(originalErr);
+    }
+
+    @Test
+    public void does_not_capture_output_of_other_threads() throws InterruptedException {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        CountDownLatch capturing = new CountDownLatch(1);
+        Thread other = new Thread(() -> {
+            Uninterruptibles.awaitUninterruptibly(capturing);
+            Helper.print("from other thread");
+        });
+        other.start();
+
+        GradleExecStubs.captureOutput(captured, captured);
+        try {
+            capturing.countDown();
+            other.join();
+        } finally {
+            GradleExecStubs.stopCapturingOutput();
+        }
+
+        assertThat(captured.toString(StandardCharsets.UTF_8)).doesNotContain("from other thread");
+    }
+
+    @Test
+    public void captures_output_of_threads_started_by_the_invocation() throws InterruptedException {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        GradleExecStubs.captureOutput(captured, captured);
+        try {
+            Thread worker = new Thread(() -> Helper.print("from worker"));
+            worker.start();
+            worker.join();
+        } finally {
+            GradleExecStubs.stopCapturingOutput();
+        }
+
+        assertThat(captured.toString(StandardCharsets.UTF_8)).contains("out: from worker", "err: from worker");
+    }
+
+    @Test
+    public void threads_outliving_the_invocation_write_to_the_original_streams() throws InterruptedException {
+        ByteArrayOutputStream original = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(original, true, StandardCharsets.UTF_8));
+        CountDownLatch otherCapturing = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        CountDownLatch printed = new CountDownLatch(1);
+        // Another invocation keeps the streams replaced after this one finishes
+        Thread other = new Thread(() -> {
+            GradleExecStubs.captureOutput(new ByteArrayOutputStream(), new ByteArrayOutputStream());
+            try {
+                otherCapturing.countDown();
+                Uninterruptibles.awaitUninterruptibly(printed);
+            } finally {
+                GradleExecStubs.stopCapturingOutput();
+            }
+        });
+        other.start();
+        otherCapturing.await();
+
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        GradleExecStubs.captureOutput(captured, captured);
+        Thread worker;
+        try {
+            worker = new Thread(() -> {
+                Uninterruptibles.awaitUninterruptibly(finished);
+                System.out.println("after invocation");
+                printed.countDown();
+            });
+            worker.start();
+        } finally {
+            GradleExecStubs.stopCapturingOutput();
+        }
+        finished.countDown();
+        worker.join();
+        other.join();
+
+        assertThat(captured.toString(StandardCharsets.UTF_8)).doesNotContain("after invocation");
+        assertThat(original.toString(StandardCharsets.UTF_8)).contains("after invocation");
+    }
+
+    /** Stands in for the classes generators print through, e.g. their CLI framework. */
+    private static final class Helper {
+        static void print(String message) {
+            System.out.println("out: " + message);
+            System.err.println("err: " + message);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class IncrementalIrCompilerTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private final List<String> compiled = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void reads_block_conjure_imports() {
+        assertThat(IncrementalIrCompiler.conjureImports("types:\n"
+                        + "  conjure-imports:\n"
+                        + "    common: common.yml # shared types\n"
+                        + "    other: 'nested/other.yml'\n"
+                        + "  definitions:\n"
+                        + "    default-package: com.palantir\n"))
+                .hasValue(ImmutableSet.of("common.yml", "nested/other.yml"));
+    }
+
+    @Test
+    public void reads_inline_conjure_imports() {
+        assertThat(IncrementalIrCompiler.conjureImports("types:\n  conjure-imports: { common: common.yml }\n"))
+                .hasValue(ImmutableSet.of("common.yml"));
+    }
+
+    @Test
+    public void gives_up_on_unreadable_conjure_imports() {
+        assertThat(IncrementalIrCompiler.conjureImports("types:\n  conjure-imports: *anchor\n"))
+                .isEmpty();
+    }
+
+    @Test
+    public void compiles_the_whole_directory_at_once_until_files_are_cached() throws IOException {
+        write("common.yml", "types:\n  definitions: {}\n");
+        write("api.yml", "types:\n  conjure-imports:\n    common: common.yml\n");
+        write("unrelated.yml", "types:\n  definitions: {}\n");
+        compile();
+        assertThat(compiled).containsExactly("src");
+
+        compiled.clear();
+        write("common.yml", "types:\n  definitions: { changed: 1 }\n");
+        compile();
+        assertThat(compiled).containsExactlyInAnyOrder("api.yml", "common.yml", "unrelated.yml");
+    }
+
+    @Test
+    public void only_recompiles_changed_files_and_their_importers() throws IOException {
+        write("common.yml", "types:\n  definitions: {}\n");
+        write("api.yml", "types:\n  conjure-imports:\n    common: common.yml\n");
+        write("unrelated.yml", "types:\n  definitions: {}\n");
+        compile();
+        write("common.yml", "types:\n  definitions: { changed: 1 }\n");
+        compile();
+
+        compiled.clear();
+        write("common.yml", "types:\n  definitions: { changed: 2 }\n");
+        compile();
+        assertThat(compiled).containsExactlyInAnyOrder("api.yml", "common.yml");
+
+        compiled.clear();
+        compile();
+        assertThat(compiled).isEmpty();
+    }
+
+    @Test
+    public void compiles_the_whole_directory_when_importing_files_outside_of_it() throws IOException {
+        Files.writeString(tempDir.resolve("outside.yml"), "types:\n  definitions: {}\n");
+        write("api.yml", "types:\n  conjure-imports:\n    outside: ../outside.yml\n");
+        compile();
+        compiled.clear();
+
+        Files.writeString(tempDir.resolve("outside.yml"), "types:\n  definitions: { changed: 1 }\n");
+        compile();
+        assertThat(compiled).containsExactly("src");
+    }
+
+    @Test
+    public void merges_definitions_shared_through_imports() throws IOException {
+        write("common.yml", "");
+        write("api.yml", "types:\n  conjure-imports:\n    common: common.yml\n");
+        compile();
+        write("common.yml", "# changed\n");
+        File output = compile();
+
+        JsonNode ir = mapper.readTree(output);
+        assertThat(ir.get("version").asInt()).isEqualTo(1);
+        assertThat(ir.get("types"))
+                .extracting(type -> type.get("object").get("typeName").get("name").asText())
+                .containsExactly("api.yml", "common.yml");
+        assertThat(ir.get("extensions").get("key").asText()).isEqualTo("value");
+    }
+
+    @Test
+    public void lists_definitions_in_the_same_order_however_they_were_compiled() throws IOException {
+        write("b.yml", "");
+        write("a.yml", "");
+        String wholeDirectory = Files.readString(compile().toPath());
+        write("a.yml", "# changed\n");
+        compile();
+        write("a.yml", "");
+
+        assertThat(Files.readString(compile().toPath())).isEqualTo(wholeDirectory);
+    }
+
+    @Test
+    public void rejects_conflicting_definitions() throws IOException {
+        Map<Path, JsonNode> irs = ImmutableMap.of(
+                Path.of("a.yml"),
+                mapper.readTree("{\"types\":[{\"type\":\"object\",\"object\":{\"typeName\":{\"name\":\"Foo\"},"
+                        + "\"fields\":[]}}]}"),
+                Path.of("b.yml"),
+                mapper.readTree("{\"types\":[{\"type\":\"object\",\"object\":{\"typeName\":{\"name\":\"Foo\"},"
+                        + "\"fields\":[{}]}}]}"));
+
+        assertThatThrownBy(() -> IncrementalIrCompiler.merge(irs, ImmutableMap.of(), mapper.createObjectNode()))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("Foo");
+    }
+
+    @Test
+    public void rejects_identical_definitions_in_files_which_do_not_import_each_other() throws IOException {
+        JsonNode ir = mapper.readTree(
+                "{\"types\":[{\"type\":\"object\",\"object\":{\"typeName\":{\"name\":\"Foo\"}}}]}");
+        Path first = Path.of("a.yml");
+        Path second = Path.of("b.yml");
+        Map<Path, JsonNode> irs = ImmutableMap.of(first, ir, second, ir);
+
+        assertThatThrownBy(() -> IncrementalIrCompiler.merge(
+                        irs,
+                        ImmutableMap.of(first, ImmutableSet.of(first), second, ImmutableSet.of(second)),
+                        mapper.createObjectNode()))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("Foo");
+        assertThat(IncrementalIrCompiler.merge(
+                                irs,
+                                ImmutableMap.of(first, ImmutableSet.of(first), second, ImmutableSet.of(first, second)),
+                                mapper.createObjectNode())
+                        .get("types"))
+                .hasSize(1);
+    }
+
+    private File compile() throws IOException {
+        File output = tempDir.resolve("output.json").toFile();
+        new IncrementalIrCompiler(tempDir.resolve("src").toFile(), tempDir.resolve("cache").toFile(), "compiler")
+                .compile(output, mapper.readTree("{\"key\":\"value\"}"), 2, this::fakeCompile);
+        return output;
+    }
+
+    /**
+     * Defines a type named after each file compiled, which for a directory is every file in it, and for a file is the
+     * file and the files it imports, like the real compiler.
+     */
+    private void fakeCompile(File source, File ir) {
+        compiled.add(source.getName());
+        try {
+            List<File> files = new ArrayList<>();
+            if (source.isDirectory()) {
+                try (Stream<Path> paths = Files.list(source.toPath())) {
+                    paths.map(Path::toFile).forEach(files::add);
+                }
+            } else {
+                files.add(source);
+                IncrementalIrCompiler.conjureImports(Files.readString(source.toPath()))
+                        .orElseThrow()
+                        .forEach(path -> files.add(new File(source.getParentFile(), path)));
+            }
+            String types = files.stream()
+                    .map(file -> "{\"type\":\"object\",\"object\":{\"typeName\":{\"name\":\"" + file.getName()
+                            + "\"}}}")
+                    .collect(Collectors.joining(","));
+            Files.writeString(ir.toPath(), "{\"version\":1,\"types\":[" + types + "]}");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(String name, String contents) throws IOException {
+        Path path = tempDir.resolve("src").resolve(name);
+        Files.createDirectories(path.getParent());
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+public class IrCanonicalizerTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void sorts_definitions_by_qualified_name() throws IOException {
+        ObjectNode ir = (ObjectNode) mapper.readTree("{\"version\":1,"
+                + "\"errors\":[" + error("com.b", "Error") + "," + error("com.a", "Error") + "],"
+                + "\"types\":["
+                + "{\"type\":\"object\",\"object\":{\"typeName\":{\"name\":\"Zed\",\"package\":\"com.a\"}}},"
+                + "{\"type\":\"enum\",\"enum\":{\"typeName\":{\"name\":\"Alpha\",\"package\":\"com.b\"}}},"
+                + "{\"type\":\"alias\",\"alias\":{\"typeName\":{\"name\":\"Alpha\",\"package\":\"com.a\"}}}],"
+                + "\"services\":[],"
+                + "\"extensions\":{}}");
+
+        IrCanonicalizer.canonicalize(ir);
+
+        assertThat(ir.get("errors").findValuesAsText("package")).containsExactly("com.a", "com.b");
+        assertThat(ir.get("types").findValuesAsText("name")).containsExactly("Alpha", "Zed", "Alpha");
+        assertThat(ir.get("types").findValuesAsText("package")).containsExactly("com.a", "com.a", "com.b");
+        assertThat(ImmutableList.copyOf(ir.fieldNames()))
+                .containsExactly("version", "errors", "types", "services", "extensions");
+    }
+
+    @Test
+    public void sorts_services_and_their_endpoints() throws IOException {
+        ObjectNode ir = (ObjectNode) mapper.readTree("{\"services\":["
+                + "{\"serviceName\":{\"name\":\"Second\",\"package\":\"com.a\"},"
+                + "\"endpoints\":[{\"endpointName\":\"put\"},{\"endpointName\":\"get\"}]},"
+                + "{\"serviceName\":{\"name\":\"First\",\"package\":\"com.a\"},\"endpoints\":[]}]}");
+
+        IrCanonicalizer.canonicalize(ir);
+
+        JsonNode services = ir.get("services");
+        assertThat(services.get(0).get("serviceName").get("name").asText()).isEqualTo("First");
+        assertThat(services.get(1).get("endpoints").findValuesAsText("endpointName"))
+                .containsExactly("get", "put");
+    }
+
+    @Test
+    public void is_unaffected_by_the_original_order() throws IOException {
+        String first = "{\"type\":\"object\",\"object\":{\"typeName\":{\"name\":\"A\",\"package\":\"p\"}}}";
+        String second = "{\"type\":\"object\",\"object\":{\"typeName\":{\"name\":\"B\",\"package\":\"p\"}}}";
+
+        assertThat(IrCanonicalizer.canonicalize(
+                        (ObjectNode) mapper.readTree("{\"types\":[" + first + "," + second + "]}")))
+                .isEqualTo(IrCanonicalizer.canonicalize(
+                        (ObjectNode) mapper.readTree("{\"types\":[" + second + "," + first + "]}")));
+    }
+
+    private static String error(String pkg, String name) {
+        return "{\"errorName\":{\"name\":\"" + name + "\",\"package\":\"" + pkg + "\"},\"namespace\":\"Test\"}";
+    }
+}
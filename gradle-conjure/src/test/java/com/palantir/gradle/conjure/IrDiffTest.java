@@ -0,0 +1,101 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+public class IrDiffTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void includes_changed_definitions_their_dependents_and_references() throws IOException {
+        String leaf = object("Leaf", "string");
+        String user = object("User", "Changed");
+        String unrelated = object("Unrelated", "string");
+        JsonNode previous = ir(leaf, object("Changed", "Leaf"), user, unrelated);
+        JsonNode current = ir(leaf, object("Changed", "User"), user, unrelated);
+
+        Optional<ObjectNode> changed = IrDiff.changedSubset(previous, current);
+
+        assertThat(changed).isPresent();
+        assertThat(changed.get().get("types").findValuesAsText("name"))
+                .contains("Changed", "User")
+                .doesNotContain("Leaf", "Unrelated");
+        assertThat(changed.get().get("version").asInt()).isEqualTo(1);
+    }
+
+    @Test
+    public void includes_references_needed_to_generate_dependents() throws IOException {
+        String leaf = object("Leaf", "string");
+        String user = object("User", "Changed", "Leaf");
+        JsonNode previous = ir(leaf, object("Changed", "string"), user);
+        JsonNode current = ir(leaf, object("Changed", "integer"), user);
+
+        assertThat(IrDiff.changedSubset(previous, current).get().get("types").findValuesAsText("name"))
+                .contains("Changed", "User", "Leaf");
+    }
+
+    @Test
+    public void generates_everything_when_definitions_are_removed() throws IOException {
+        JsonNode previous = ir(object("Kept", "string"), object("Removed", "string"));
+        JsonNode current = ir(object("Kept", "string"));
+
+        assertThat(IrDiff.changedSubset(previous, current)).isEmpty();
+    }
+
+    @Test
+    public void generates_everything_when_extensions_change() throws IOException {
+        JsonNode previous = ir(object("Kept", "string"));
+        ObjectNode current = ir(object("Kept", "string"));
+        current.putObject("extensions").put("key", "value");
+
+        assertThat(IrDiff.changedSubset(previous, current)).isEmpty();
+    }
+
+    private static ObjectNode ir(String... types) throws IOException {
+        return (ObjectNode) mapper.readTree(
+                "{\"version\":1,\"errors\":[],\"types\":[" + String.join(",", types) + "],\"services\":[]}");
+    }
+
+    /** An object with one field per referenced type, either another object in the same package or a primitive. */
+    private static String object(String name, String... fieldTypes) {
+        StringBuilder fields = new StringBuilder();
+        for (int i = 0; i < fieldTypes.length; i++) {
+            String fieldType = Character.isUpperCase(fieldTypes[i].charAt(0))
+                    ? "{\"type\":\"reference\",\"reference\":" + typeName(fieldTypes[i]) + "}"
+                    : "{\"type\":\"primitive\",\"primitive\":\"" + fieldTypes[i].toUpperCase(Locale.ROOT) + "\"}";
+            if (i > 0) {
+                fields.append(',');
+            }
+            fields.append("{\"fieldName\":\"field" + i + "\",\"type\":" + fieldType + "}");
+        }
+        return "{\"type\":\"object\",\"object\":{\"typeName\":" + typeName(name) + ",\"fields\":[" + fields + "]}}";
+    }
+
+    private static String typeName(String name) {
+        return "{\"name\":\"" + name + "\",\"package\":\"com.palantir\"}";
+    }
+}
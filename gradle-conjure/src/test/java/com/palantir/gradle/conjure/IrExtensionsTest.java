@@ -0,0 +1,71 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class IrExtensionsTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void replaces_extensions_leaving_the_rest_untouched() throws IOException {
+        File ir = write("{\n  \"version\" : 1,\n  \"types\" : [ {\"x\":\"}\"} ],\n"
+                + "  \"extensions\" : { \"old\" : 2 },\n  \"services\" : [ ]\n}\n");
+
+        IrExtensions.replace(ir, extensions(), ir);
+
+        String written = Files.readString(ir.toPath());
+        assertThat(written)
+                .startsWith("{\n  \"version\" : 1,\n  \"types\" : [ {\"x\":\"}\"} ],\n  \"extensions\" : {")
+                .endsWith("},\n  \"services\" : [ ]\n}\n")
+                .doesNotContain("old");
+        assertThat(mapper.readTree(written).get("extensions")).isEqualTo(extensions());
+    }
+
+    @Test
+    public void adds_missing_extensions_after_the_last_field() throws IOException {
+        File ir = write("{\n  \"version\" : 1,\n  \"types\" : [ ]\n}\n");
+        File output = tempDir.resolve("output.json").toFile();
+
+        IrExtensions.replace(ir, extensions(), output);
+
+        JsonNode written = mapper.readTree(output);
+        assertThat(written.get("version").asInt()).isEqualTo(1);
+        assertThat(written.get("extensions")).isEqualTo(extensions());
+    }
+
+    private File write(String contents) throws IOException {
+        return Files.writeString(tempDir.resolve("ir.json"), contents).toFile();
+    }
+
+    private static JsonNode extensions() throws IOException {
+        return mapper.readTree("{\"key\":\"value\",\"recommended-product-dependencies\":[]}");
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.hash.HashCode;
+import com.palantir.gradle.dist.ProductDependency;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class IrMetadataTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void summarises_ir() throws IOException {
+        JsonNode ir = mapper.readTree("{\"version\":1,\"errors\":[],\"types\":[{},{}],\"services\":["
+                + "{\"serviceName\":{\"name\":\"FooService\",\"package\":\"com.palantir\"},\"endpoints\":[]}],"
+                + "\"extensions\":{\"large\":{\"a\":\"b\"},\"recommended-product-dependencies\":[]}}");
+
+        ObjectNode metadata = IrMetadata.metadata(ir, HashCode.fromInt(1));
+
+        assertThat(metadata.get("ir-version").asInt()).isEqualTo(1);
+        assertThat(metadata.get("type-count").asInt()).isEqualTo(2);
+        assertThat(metadata.get("error-count").asInt()).isZero();
+        assertThat(metadata.get("services").get(0).asText()).isEqualTo("com.palantir.FooService");
+        assertThat(metadata.get("extension-names").toString())
+                .isEqualTo("[\"large\",\"recommended-product-dependencies\"]");
+        assertThat(metadata.get("extensions").has("large")).isFalse();
+    }
+
+    @Test
+    public void product_dependencies_can_be_read_like_an_ir() throws IOException {
+        String dependency = "{\"product-group\":\"com.palantir\",\"product-name\":\"foo\","
+                + "\"minimum-version\":\"1.0.0\",\"maximum-version\":\"1.x.x\"}";
+        JsonNode ir = mapper.readTree("{\"version\":1,\"types\":[],\"errors\":[],\"services\":[],"
+                + "\"extensions\":{\"recommended-product-dependencies\":[" + dependency + "]}}");
+        File metadataFile = tempDir.resolve("api.conjure-metadata.json").toFile();
+        mapper.writeValue(metadataFile, IrMetadata.metadata(ir, HashCode.fromInt(1)));
+
+        assertThat(IrProductDependencies.read(metadataFile))
+                .extracting(ProductDependency::getProductName)
+                .containsExactly("foo");
+    }
+}
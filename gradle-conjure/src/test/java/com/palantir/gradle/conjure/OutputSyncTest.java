@@ -0,0 +1,103 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class OutputSyncTest {
+
+    private static final FileTime OLD = FileTime.fromMillis(1_000_000_000_000L);
+
+    @TempDir
+    Path tempDir;
+
+    private Path output;
+
+    @BeforeEach
+    public void before() {
+        output = tempDir.resolve("output");
+    }
+
+    @Test
+    public void leaves_unchanged_files_untouched() throws IOException {
+        write(output.resolve("com/foo/Unchanged.java"), "unchanged");
+        write(output.resolve("com/foo/Changed.java"), "old");
+        Files.setLastModifiedTime(output.resolve("com/foo/Unchanged.java"), OLD);
+        Files.setLastModifiedTime(output.resolve("com/foo/Changed.java"), OLD);
+
+        File staging = OutputSync.stagingDirectory(tempDir.resolve("tmp").toFile(), "0");
+        write(staging.toPath().resolve("com/foo/Unchanged.java"), "unchanged");
+        write(staging.toPath().resolve("com/foo/Changed.java"), "new");
+        write(staging.toPath().resolve("com/foo/Added.java"), "added");
+        OutputSync.sync(staging, output.toFile(), _path -> false);
+
+        assertThat(Files.getLastModifiedTime(output.resolve("com/foo/Unchanged.java"))).isEqualTo(OLD);
+        assertThat(output.resolve("com/foo/Changed.java")).hasContent("new");
+        assertThat(output.resolve("com/foo/Added.java")).hasContent("added");
+        assertThat(staging).doesNotExist();
+    }
+
+    @Test
+    public void deletes_files_and_directories_no_longer_generated() throws IOException {
+        write(output.resolve("com/foo/Kept.java"), "kept");
+        write(output.resolve("com/bar/Removed.java"), "removed");
+
+        File staging = OutputSync.stagingDirectory(tempDir.resolve("tmp").toFile(), "0");
+        write(staging.toPath().resolve("com/foo/Kept.java"), "kept");
+        OutputSync.sync(staging, output.toFile(), _path -> false);
+
+        assertThat(output.resolve("com/foo/Kept.java")).exists();
+        assertThat(output.resolve("com/bar")).doesNotExist();
+    }
+
+    @Test
+    public void keeps_preserved_paths() throws IOException {
+        write(output.resolve("node_modules/dep/index.js"), "dep");
+        write(output.resolve("index.ts"), "old");
+
+        File staging = OutputSync.stagingDirectory(tempDir.resolve("tmp").toFile(), "0");
+        write(staging.toPath().resolve("package.json"), "{}");
+        OutputSync.sync(staging, output.toFile(), path -> path.startsWith("node_modules"));
+
+        assertThat(output.resolve("node_modules/dep/index.js")).hasContent("dep");
+        assertThat(output.resolve("package.json")).hasContent("{}");
+        assertThat(output.resolve("index.ts")).doesNotExist();
+    }
+
+    @Test
+    public void staging_directory_starts_empty() throws IOException {
+        File staging = OutputSync.stagingDirectory(tempDir.toFile(), "0");
+        write(staging.toPath().resolve("Leftover.java"), "leftover");
+
+        assertThat(OutputSync.stagingDirectory(tempDir.toFile(), "0")).isEmptyDirectory();
+    }
+
+    private static void write(Path path, String contents) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+public class ParallelUtilsTest {
+
+    @Test
+    public void runs_every_item() {
+        Set<Integer> seen = ConcurrentHashMap.newKeySet();
+        ParallelUtils.forEach(ImmutableList.of(1, 2, 3, 4, 5), 3, "test", seen::add);
+        assertThat(seen).containsExactlyInAnyOrder(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    public void runs_on_calling_thread_when_sequential() {
+        Thread caller = Thread.currentThread();
+        ParallelUtils.forEach(ImmutableList.of(1, 2), 1, "test", _item -> assertThat(Thread.currentThread())
+                .isSameAs(caller));
+    }
+
+    @Test
+    public void runs_items_concurrently() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        ParallelUtils.forEach(ImmutableList.of(1, 2), 2, "test", _item -> {
+            bothStarted.countDown();
+            try {
+                assertThat(bothStarted.await(10, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Test
+    public void rethrows_first_failure() {
+        List<Integer> items = ImmutableList.of(1, 2, 3);
+        assertThatThrownBy(() -> ParallelUtils.forEach(items, 2, "test", item -> {
+                    if (item == 2) {
+                        throw new IllegalStateException("boom");
+                    }
+                }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("boom");
+    }
+
+    @Test
+    public void waits_for_cancelled_work_to_stop_before_rethrowing() {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        AtomicBoolean slowStopped = new AtomicBoolean();
+        assertThatThrownBy(() -> ParallelUtils.forEach(ImmutableList.of(1, 2), 2, "test", item -> {
+                    if (item == 1) {
+                        Uninterruptibles.awaitUninterruptibly(slowStarted);
+                        throw new IllegalStateException("boom");
+                    }
+                    slowStarted.countDown();
+                    try {
+                        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                    } catch (InterruptedException e) {
+                        // Keep going for a little while after being cancelled, like a generator finishing a file
+                        Uninterruptibles.sleepUninterruptibly(200, TimeUnit.MILLISECONDS);
+                        slowStopped.set(true);
+                    }
+                }))
+                .hasMessage("boom");
+        assertThat(slowStopped).isTrue();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RedefinedClassCacheTest {
+
+    @TempDir
+    File cacheDir;
+
+    @Test
+    public void only_redefines_each_class_once() {
+        AtomicInteger redefinitions = new AtomicInteger();
+        byte[] original = "original".getBytes(StandardCharsets.UTF_8);
+        byte[] redefined = "redefined".getBytes(StandardCharsets.UTF_8);
+
+        for (int i = 0; i < 2; i++) {
+            assertThat(RedefinedClassCache.getOrRedefine(cacheDir, original, () -> {
+                        redefinitions.incrementAndGet();
+                        return redefined;
+                    }))
+                    .isEqualTo(redefined);
+        }
+        assertThat(redefinitions).hasValue(1);
+    }
+
+    @Test
+    public void different_classes_are_cached_separately() {
+        byte[] first = RedefinedClassCache.getOrRedefine(
+                cacheDir, "a".getBytes(StandardCharsets.UTF_8), () -> "a2".getBytes(StandardCharsets.UTF_8));
+        byte[] second = RedefinedClassCache.getOrRedefine(
+                cacheDir, "b".getBytes(StandardCharsets.UTF_8), () -> "b2".getBytes(StandardCharsets.UTF_8));
+        assertThat(first).isNotEqualTo(second);
+    }
+
+    @Test
+    public void deletes_classes_unused_for_longer_than_the_maximum() throws IOException {
+        Path stale = cacheDir.toPath().resolve("stale.class");
+        Files.write(stale, new byte[0]);
+        Files.setLastModifiedTime(
+                stale, FileTime.from(Instant.now().minus(CacheCleanup.MAX_UNUSED).minusSeconds(60)));
+        Path recent = cacheDir.toPath().resolve("recent.class");
+        Files.write(recent, new byte[0]);
+
+        RedefinedClassCache.getOrRedefine(
+                cacheDir, "a".getBytes(StandardCharsets.UTF_8), () -> "a2".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(stale).doesNotExist();
+        assertThat(recent).exists();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.palantir.gradle.conjure.ConjureRunnerResource.ConjureRunner;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.gradle.api.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RunnerCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<FakeRunner> created = new ArrayList<>();
+
+    @Test
+    public void reuses_the_runner_for_a_key() throws IOException {
+        RunnerCache cache = new RunnerCache(2, this::create);
+        File executable = executable("gen", "v1");
+
+        acquire(cache, "gen", executable).close();
+        acquire(cache, "gen", executable).close();
+
+        assertThat(created).hasSize(1);
+        assertThat(created.get(0).closed).isFalse();
+    }
+
+    @Test
+    public void evicts_and_closes_the_least_recently_used_runner() throws IOException {
+        RunnerCache cache = new RunnerCache(2, this::create);
+        File a = executable("a", "v1");
+        File b = executable("b", "v1");
+        File c = executable("c", "v1");
+
+        acquire(cache, "a", a).close();
+        acquire(cache, "b", b).close();
+        acquire(cache, "a", a).close();
+        acquire(cache, "c", c).close();
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(created.get(0).closed).isFalse();
+        assertThat(created.get(1).closed).isTrue();
+        assertThat(created.get(2).closed).isFalse();
+    }
+
+    @Test
+    public void closes_an_evicted_runner_only_once_every_lease_is_released() throws IOException {
+        RunnerCache cache = new RunnerCache(1, this::create);
+        File a = executable("a", "v1");
+
+        ConjureRunner first = acquire(cache, "a", a);
+        ConjureRunner second = acquire(cache, "a", a);
+        acquire(cache, "b", executable("b", "v1")).close();
+        assertThat(created.get(0).closed).isFalse();
+
+        first.close();
+        assertThat(created.get(0).closed).isFalse();
+        second.close();
+        assertThat(created.get(0).closed).isTrue();
+    }
+
+    @Test
+    public void replaces_the_runner_when_the_executable_changes() throws IOException {
+        RunnerCache cache = new RunnerCache(2, this::create);
+        File executable = executable("gen", "v1");
+        acquire(cache, "gen", executable).close();
+
+        executable("gen", "changed");
+        acquire(cache, "gen", executable).close();
+
+        assertThat(created).hasSize(2);
+        assertThat(created.get(0).closed).isTrue();
+        assertThat(created.get(1).closed).isFalse();
+    }
+
+    @Test
+    public void evicts_a_poisoned_runner_when_its_lease_is_released() throws IOException {
+        RunnerCache cache = new RunnerCache(2, this::create);
+        File executable = executable("gen", "v1");
+
+        ConjureRunner runner = acquire(cache, "gen", executable);
+        created.get(0).poisoned = true;
+        assertThat(runner.isPoisoned()).isTrue();
+        runner.close();
+
+        assertThat(created.get(0).closed).isTrue();
+        assertThat(cache.size()).isZero();
+        acquire(cache, "gen", executable).close();
+        assertThat(created).hasSize(2);
+    }
+
+    @Test
+    public void closing_closes_every_runner_once_released() throws IOException {
+        RunnerCache cache = new RunnerCache(2, this::create);
+        acquire(cache, "a", executable("a", "v1")).close();
+        ConjureRunner leased = acquire(cache, "b", executable("b", "v1"));
+
+        cache.close();
+
+        assertThat(cache.size()).isZero();
+        assertThat(created.get(0).closed).isTrue();
+        assertThat(created.get(1).closed).isFalse();
+        leased.close();
+        assertThat(created.get(1).closed).isTrue();
+    }
+
+    private ConjureRunner acquire(RunnerCache cache, String key, File executable) throws IOException {
+        return cache.acquire(
+                key,
+                executable,
+                ImmutableConjureRunnerOptions.builder()
+                        .redefinedClassCache(tempDir.resolve("redefined").toFile())
+                        .extractionCache(tempDir.resolve("extracted").toFile())
+                        .build());
+    }
+
+    private File executable(String name, String contents) throws IOException {
+        Path executable = Files.createDirectories(tempDir.resolve(name).resolve("bin")).resolve(name);
+        Files.writeString(executable, contents);
+        return executable.toFile();
+    }
+
+    private ConjureRunner create(File _executable, ConjureRunnerOptions _options) {
+        FakeRunner runner = new FakeRunner();
+        created.add(runner);
+        return runner;
+    }
+
+    private static final class FakeRunner implements ConjureRunner {
+        private boolean poisoned;
+        private boolean closed;
+
+        @Override
+        public void invoke(
+                Logger logger, File workingDir, String failedTo, List<String> unloggedArgs, List<String> loggedArgs) {}
+
+        @Override
+        public boolean isPoisoned() {
+            return poisoned;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
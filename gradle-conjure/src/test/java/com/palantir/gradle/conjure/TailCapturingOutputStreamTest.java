@@ -0,0 +1,73 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class TailCapturingOutputStreamTest {
+
+    private final List<String> lines = new ArrayList<>();
+
+    @Test
+    public void forwards_each_line() {
+        TailCapturingOutputStream output = new TailCapturingOutputStream(1024, lines::add);
+        write(output, "first\r\nsecond\nthird");
+        assertThat(lines).containsExactly("first", "second");
+
+        output.close();
+        assertThat(lines).containsExactly("first", "second", "third");
+        assertThat(output.tail()).isEqualTo("first\r\nsecond\nthird");
+    }
+
+    @Test
+    public void only_keeps_the_tail() {
+        TailCapturingOutputStream output = new TailCapturingOutputStream(8, lines::add);
+        write(output, "0123456789abcdef\n");
+        output.close();
+
+        assertThat(lines).containsExactly("0123456789abcdef");
+        assertThat(output.tail()).isEqualTo("... (9 bytes truncated)\n9abcdef\n");
+    }
+
+    @Test
+    public void forwards_lines_of_the_other_stream_separately_but_shares_the_tail() throws IOException {
+        List<String> errors = new ArrayList<>();
+        TailCapturingOutputStream output = new TailCapturingOutputStream(1024, lines::add);
+        OutputStream error = output.otherStream(errors::add);
+        write(output, "out ");
+        error.write("err\n".getBytes(StandardCharsets.UTF_8));
+        write(output, "line\n");
+        error.write("trailing".getBytes(StandardCharsets.UTF_8));
+        output.close();
+
+        assertThat(lines).containsExactly("out line");
+        assertThat(errors).containsExactly("err", "trailing");
+        assertThat(output.tail()).isEqualTo("out err\nline\ntrailing");
+    }
+
+    private static void write(TailCapturingOutputStream output, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        output.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+import org.gradle.api.GradleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TarExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void strips_root_directory() throws IOException {
+        File archive = tgz(entry("gen-1.0.0/", ""), entry("gen-1.0.0/bin/gen", "#!/bin/sh"));
+        Path output = tempDir.resolve("out");
+
+        TarExtractor.extract(archive, output.toFile());
+
+        assertThat(output.resolve("bin/gen")).hasContent("#!/bin/sh");
+        assertThat(output.resolve("bin/gen").toFile().canExecute()).isTrue();
+    }
+
+    @Test
+    public void deletes_files_not_in_archive() throws IOException {
+        Path output = tempDir.resolve("out");
+        Files.createDirectories(output.resolve("lib"));
+        Files.write(output.resolve("lib/old-1.0.0.jar"), new byte[] {1});
+
+        TarExtractor.extract(tgz(entry("gen-1.0.1/lib/new-1.0.1.jar", "jar")), output.toFile());
+
+        assertThat(output.resolve("lib/new-1.0.1.jar")).hasContent("jar");
+        assertThat(output.resolve("lib/old-1.0.0.jar")).doesNotExist();
+    }
+
+    @Test
+    public void keeps_markers_recording_the_source_archive() throws IOException {
+        Path output = tempDir.resolve("out");
+        Files.createDirectories(output);
+        Files.writeString(output.resolve(ArchiveBackedDistribution.MARKER_FILE_NAME), "gen.tgz");
+
+        TarExtractor.extract(tgz(entry("gen-1.0.0/bin/gen", "#!/bin/sh")), output.toFile());
+
+        assertThat(output.resolve(ArchiveBackedDistribution.MARKER_FILE_NAME)).hasContent("gen.tgz");
+    }
+
+    @Test
+    public void rejects_symbolic_links_outside_of_the_output_directory() throws IOException {
+        File archive = tgz(link("gen-1.0.0/lib", "../elsewhere"), entry("gen-1.0.0/lib/evil.jar", "jar"));
+        assertThatThrownBy(() -> TarExtractor.extract(archive, tempDir.resolve("out").toFile()))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("Refusing to extract symbolic link");
+        assertThat(tempDir.resolve("elsewhere")).doesNotExist();
+    }
+
+    @Test
+    public void rejects_multiple_root_directories() throws IOException {
+        File archive = tgz(entry("a/bin/gen", "a"), entry("b/bin/gen", "b"));
+        assertThatThrownBy(() -> TarExtractor.extract(archive, tempDir.resolve("out").toFile()))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("Expected exactly one root directory");
+    }
+
+    @Test
+    public void skips_files_next_to_the_root_directory() throws IOException {
+        Path output = tempDir.resolve("out");
+
+        TarExtractor.extract(tgz(entry("README", "readme"), entry("gen-1.0.0/bin/gen", "#!/bin/sh")), output.toFile());
+
+        assertThat(output.resolve("bin/gen")).hasContent("#!/bin/sh");
+        assertThat(output.resolve("README")).doesNotExist();
+    }
+
+    @Test
+    public void rejects_headers_with_a_wrong_checksum() throws IOException {
+        byte[] entry = entry("gen-1.0.0/bin/gen", "#!/bin/sh");
+        entry[0] = 'h';
+        File archive = tgz(entry);
+        assertThatThrownBy(() -> TarExtractor.extract(archive, tempDir.resolve("out").toFile()))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("Malformed tar")
+                .hasMessageContaining("checksum");
+    }
+
+    @Test
+    public void rejects_headers_with_non_octal_numbers() throws IOException {
+        File archive = tgz(entry("gen-1.0.0/bin/gen", '0', "", "99999999999", "#!/bin/sh"));
+        assertThatThrownBy(() -> TarExtractor.extract(archive, tempDir.resolve("out").toFile()))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("not an octal number");
+    }
+
+    @Test
+    public void rejects_truncated_entries() throws IOException {
+        byte[] entry = entry("gen-1.0.0/bin/gen", '0', "", String.format("%011o", 4096), "#!/bin/sh");
+        File archive = tempDir.resolve("truncated.tgz").toFile();
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive.toPath()))) {
+            out.write(entry);
+        }
+        assertThatThrownBy(() -> TarExtractor.extract(archive, tempDir.resolve("out").toFile()))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("truncated entry");
+    }
+
+    @Test
+    public void rejects_truncated_headers() throws IOException {
+        File archive = tempDir.resolve("truncated.tgz").toFile();
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive.toPath()))) {
+            out.write(entry("gen-1.0.0/bin/gen", "#!/bin/sh"), 0, 100);
+        }
+        assertThatThrownBy(() -> TarExtractor.extract(archive, tempDir.resolve("out").toFile()))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("truncated header");
+    }
+
+    @Test
+    public void rejects_malformed_pax_records() throws IOException {
+        File archive = tgz(entry("PaxHeaders/gen", 'x', "", "99 path=gen-1.0.0/bin/gen\n"), entry("gen", "#!/bin/sh"));
+        assertThatThrownBy(() -> TarExtractor.extract(archive, tempDir.resolve("out").toFile()))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("pax record");
+    }
+
+    @Test
+    public void reads_pax_paths() throws IOException {
+        String record = "30 path=gen-1.0.0/bin/gen-pax\n";
+        Path output = tempDir.resolve("out");
+
+        TarExtractor.extract(tgz(entry("PaxHeaders/gen", 'x', "", record), entry("gen", "#!/bin/sh")), output.toFile());
+
+        assertThat(output.resolve("bin/gen-pax")).hasContent("#!/bin/sh");
+    }
+
+    @Test
+    public void asks_for_bzip2_archives_to_be_decompressed_first() throws IOException {
+        File archive = tempDir.resolve("gen-1.0.0.tbz2").toFile();
+        Files.write(archive.toPath(), "BZh91AY&SY".getBytes(StandardCharsets.US_ASCII));
+
+        assertThat(TarExtractor.isBzip2(archive)).isTrue();
+        assertThatThrownBy(() -> TarExtractor.extract(archive, tempDir.resolve("out").toFile()))
+                .isInstanceOf(GradleException.class)
+                .hasMessageContaining("bzip2 compressed");
+    }
+
+    private File tgz(byte[]... entries) throws IOException {
+        return tgz(tempDir.resolve("archive.tgz"), entries);
+    }
+
+    static File tgz(Path path, byte[]... entries) throws IOException {
+        File archive = path.toFile();
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive.toPath()))) {
+            for (byte[] entry : entries) {
+                out.write(entry);
+            }
+            out.write(new byte[1024]);
+        }
+        return archive;
+    }
+
+    /** A ustar header followed by padded contents, or a directory if the name ends with a slash. */
+    static byte[] entry(String name, String contents) throws IOException {
+        return entry(name, name.endsWith("/") ? '5' : '0', "", contents);
+    }
+
+    static byte[] entry(String name, byte[] contents) throws IOException {
+        return entry(name, '0', "", String.format("%011o", contents.length), contents);
+    }
+
+    private static byte[] link(String name, String linkName) throws IOException {
+        return entry(name, '2', linkName, "");
+    }
+
+    private static byte[] entry(String name, char type, String linkName, String contents) throws IOException {
+        String size = String.format("%011o", contents.getBytes(StandardCharsets.UTF_8).length);
+        return entry(name, type, linkName, size, contents);
+    }
+
+    private static byte[] entry(String name, char type, String linkName, String size, String contents)
+            throws IOException {
+        return entry(name, type, linkName, size, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] entry(String name, char type, String linkName, String size, byte[] data)
+            throws IOException {
+        byte[] header = new byte[512];
+        put(header, 0, name);
+        put(header, 100, "0000755");
+        put(header, 124, size);
+        put(header, 136, String.format("%011o", 1700000000L));
+        header[156] = (byte) type;
+        put(header, 157, linkName);
+        put(header, 257, "ustar");
+        put(header, 263, "00");
+        put(header, 148, "        ");
+        long checksum = 0;
+        for (byte value : header) {
+            checksum += value & 0xff;
+        }
+        put(header, 148, String.format("%06o", checksum));
+
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        entry.write(header);
+        entry.write(data);
+        entry.write(new byte[(512 - data.length % 512) % 512]);
+        return entry.toByteArray();
+    }
+
+    private static void put(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * (c) Copyright 2026 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.conjure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class YamlFingerprintTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void ignores_comments_trailing_whitespace_and_line_endings() {
+        assertThat(YamlFingerprint.normalize("# header\r\n"
+                        + "types:   \r\n"
+                        + "  definitions: # inline\r\n"
+                        + "\r\n"
+                        + "    default-package: com.palantir#not-a-comment\r\n"))
+                .hasValue("types:\n  definitions:\n\n    default-package: com.palantir#not-a-comment\n");
+    }
+
+    @Test
+    public void keeps_block_scalars_as_written() {
+        String yaml = "docs: |\n  # Heading  \n\n  text\nother: value # comment\n";
+
+        assertThat(YamlFingerprint.normalize(yaml)).hasValue("docs: |\n  # Heading  \n\n  text\nother: value\n");
+    }
+
+    @Test
+    public void keeps_hashes_in_quoted_strings() {
+        assertThat(YamlFingerprint.normalize("a: \"x # y\" # comment\nb: 'it''s # z'\nc: it's # comment\n"))
+                .hasValue("a: \"x # y\"\nb: 'it''s # z'\nc: it's\n");
+    }
+
+    @Test
+    public void gives_up_on_quoted_strings_spanning_lines() {
+        assertThat(YamlFingerprint.normalize("docs: \"first\n  # second\"\n")).isEmpty();
+    }
+
+    @Test
+    public void fingerprint_only_changes_with_content() throws IOException {
+        write("api.yml", "types:\n  definitions: {}\n");
+        String original = YamlFingerprint.fingerprint(tempDir.toFile());
+
+        write("api.yml", "# comment\ntypes:  \n  definitions: {} # comment\n");
+        assertThat(YamlFingerprint.fingerprint(tempDir.toFile())).isEqualTo(original);
+
+        write("api.yml", "types:\n  definitions: { changed: true }\n");
+        assertThat(YamlFingerprint.fingerprint(tempDir.toFile())).isNotEqualTo(original);
+    }
+
+    private void write(String name, String contents) throws IOException {
+        Files.write(tempDir.resolve(name), contents.getBytes(StandardCharsets.UTF_8));
+    }
+}